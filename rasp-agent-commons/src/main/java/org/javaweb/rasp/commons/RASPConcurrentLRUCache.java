@@ -0,0 +1,340 @@
+package org.javaweb.rasp.commons;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 线程安全的分段LRU缓存，可以在多个请求线程中共享，用于缓存Hook模块中开销较大的检测结果。
+ * <p>
+ * 缓存按key的hash分为多个段，每个段是一个按访问顺序排序的LinkedHashMap并使用独立的锁，
+ * 各个段单独按LRU淘汰，不同段之间的读写不会互相阻塞。支持可选的过期时间和命中/未命中/淘汰次数统计。
+ * key和value都不能为null。
+ *
+ * @param <K> 缓存key类型
+ * @param <V> 缓存value类型
+ */
+public class RASPConcurrentLRUCache<K, V> {
+
+	/**
+	 * 默认分段数
+	 */
+	private static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+	/**
+	 * 最大分段数
+	 */
+	private static final int MAX_SEGMENTS = 1 << 16;
+
+	/**
+	 * 缓存分段
+	 */
+	private final Segment<K, V>[] segments;
+
+	/**
+	 * 分段掩码
+	 */
+	private final int segmentMask;
+
+	/**
+	 * 最大缓存个数
+	 */
+	private final int maxSize;
+
+	/**
+	 * 缓存过期时间（纳秒），小于等于0表示永不过期
+	 */
+	private final long ttlNanos;
+
+	/**
+	 * 命中次数
+	 */
+	private final AtomicLong hitCount = new AtomicLong();
+
+	/**
+	 * 未命中次数
+	 */
+	private final AtomicLong missCount = new AtomicLong();
+
+	/**
+	 * 淘汰次数，包含超过最大缓存个数淘汰和过期淘汰
+	 */
+	private final AtomicLong evictionCount = new AtomicLong();
+
+	public RASPConcurrentLRUCache(int maxSize) {
+		this(maxSize, 0, TimeUnit.MILLISECONDS);
+	}
+
+	public RASPConcurrentLRUCache(int maxSize, long ttl, TimeUnit unit) {
+		this(maxSize, ttl, unit, DEFAULT_CONCURRENCY_LEVEL);
+	}
+
+	/**
+	 * 创建分段LRU缓存
+	 *
+	 * @param maxSize          最大缓存个数
+	 * @param ttl              缓存过期时间，小于等于0表示永不过期
+	 * @param unit             过期时间单位
+	 * @param concurrencyLevel 预计的并发线程数，用于计算分段数
+	 */
+	@SuppressWarnings("unchecked")
+	public RASPConcurrentLRUCache(int maxSize, long ttl, TimeUnit unit, int concurrencyLevel) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("maxSize must be greater than 0");
+		}
+
+		// 分段数为2的幂且不超过最大缓存个数，保证每个段至少能缓存一个元素
+		int segmentCount = 1;
+		int limit        = Math.min(Math.min(Math.max(concurrencyLevel, 1), maxSize), MAX_SEGMENTS);
+
+		while (segmentCount < limit) {
+			segmentCount <<= 1;
+		}
+
+		if (segmentCount > maxSize) {
+			segmentCount >>>= 1;
+		}
+
+		// 将最大缓存个数平均分配到各个段，保证所有段的容量之和等于maxSize
+		int segmentSize = maxSize / segmentCount;
+		int remainder   = maxSize % segmentCount;
+
+		this.maxSize = maxSize;
+		this.ttlNanos = ttl > 0 ? unit.toNanos(ttl) : 0;
+		this.segmentMask = segmentCount - 1;
+		this.segments = (Segment<K, V>[]) new Segment<?, ?>[segmentCount];
+
+		for (int i = 0; i < segmentCount; i++) {
+			segments[i] = new Segment<K, V>(i < remainder ? segmentSize + 1 : segmentSize, evictionCount);
+		}
+	}
+
+	private Segment<K, V> segmentFor(Object key) {
+		int h = key.hashCode();
+		h ^= (h >>> 20) ^ (h >>> 12);
+		h ^= (h >>> 7) ^ (h >>> 4);
+
+		return segments[h & segmentMask];
+	}
+
+	private long expireTime() {
+		return ttlNanos > 0 ? System.nanoTime() + ttlNanos : 0;
+	}
+
+	/**
+	 * 获取缓存，同时更新访问顺序
+	 *
+	 * @param key 缓存key
+	 * @return 缓存值，不存在或已过期返回null
+	 */
+	public V get(K key) {
+		Segment<K, V> segment = segmentFor(key);
+		V             value;
+
+		synchronized (segment) {
+			value = segment.getValue(key, ttlNanos > 0 ? System.nanoTime() : 0);
+		}
+
+		if (value != null) {
+			hitCount.incrementAndGet();
+		} else {
+			missCount.incrementAndGet();
+		}
+
+		return value;
+	}
+
+	/**
+	 * 添加缓存，超过最大缓存个数时淘汰所在段中最久未访问的缓存
+	 *
+	 * @param key   缓存key
+	 * @param value 缓存值
+	 * @return 原缓存值
+	 */
+	public V put(K key, V value) {
+		if (value == null) {
+			throw new NullPointerException();
+		}
+
+		Segment<K, V> segment = segmentFor(key);
+
+		synchronized (segment) {
+			CacheValue<V> old = segment.put(key, new CacheValue<V>(value, expireTime()));
+
+			return old != null ? old.value : null;
+		}
+	}
+
+	/**
+	 * 缓存不存在或已过期时添加缓存
+	 *
+	 * @param key   缓存key
+	 * @param value 缓存值
+	 * @return 已存在的缓存值，不存在时返回null
+	 */
+	public V putIfAbsent(K key, V value) {
+		if (value == null) {
+			throw new NullPointerException();
+		}
+
+		Segment<K, V> segment = segmentFor(key);
+
+		synchronized (segment) {
+			V old = segment.getValue(key, ttlNanos > 0 ? System.nanoTime() : 0);
+
+			if (old == null) {
+				segment.put(key, new CacheValue<V>(value, expireTime()));
+			}
+
+			return old;
+		}
+	}
+
+	public boolean containsKey(K key) {
+		Segment<K, V> segment = segmentFor(key);
+
+		synchronized (segment) {
+			CacheValue<V> cacheValue = segment.get(key);
+
+			return cacheValue != null && !cacheValue.isExpired(ttlNanos > 0 ? System.nanoTime() : 0);
+		}
+	}
+
+	public V remove(K key) {
+		Segment<K, V> segment = segmentFor(key);
+
+		synchronized (segment) {
+			CacheValue<V> old = segment.remove(key);
+
+			return old != null ? old.value : null;
+		}
+	}
+
+	/**
+	 * 获取缓存个数，可能包含已过期但还未被清除的缓存
+	 *
+	 * @return 缓存个数
+	 */
+	public int size() {
+		int size = 0;
+
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	public void clear() {
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	/**
+	 * 获取缓存命中率
+	 *
+	 * @return 命中率，没有任何查询时返回0
+	 */
+	public double getHitRate() {
+		long hits     = hitCount.get();
+		long requests = hits + missCount.get();
+
+		return requests == 0 ? 0 : (double) hits / requests;
+	}
+
+	@Override
+	public String toString() {
+		return "RASPConcurrentLRUCache{size=" + size() + ", maxSize=" + maxSize + ", hitCount=" + getHitCount() +
+				", missCount=" + getMissCount() + ", evictionCount=" + getEvictionCount() + "}";
+	}
+
+	private static class CacheValue<V> {
+
+		private final V value;
+
+		/**
+		 * 过期时间（System.nanoTime），0表示永不过期
+		 */
+		private final long expireTime;
+
+		CacheValue(V value, long expireTime) {
+			this.value = value;
+			this.expireTime = expireTime;
+		}
+
+		boolean isExpired(long now) {
+			return expireTime != 0 && now - expireTime >= 0;
+		}
+
+	}
+
+	private static class Segment<K, V> extends LinkedHashMap<K, CacheValue<V>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int maxSize;
+
+		private final AtomicLong evictionCount;
+
+		Segment(int maxSize, AtomicLong evictionCount) {
+			super(Math.min(maxSize, 16), 0.75f, true);
+			this.maxSize = maxSize;
+			this.evictionCount = evictionCount;
+		}
+
+		V getValue(Object key, long now) {
+			CacheValue<V> cacheValue = get(key);
+
+			if (cacheValue == null) {
+				return null;
+			}
+
+			if (cacheValue.isExpired(now)) {
+				remove(key);
+				evictionCount.incrementAndGet();
+
+				return null;
+			}
+
+			return cacheValue.value;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, CacheValue<V>> eldest) {
+			if (size() > maxSize) {
+				evictionCount.incrementAndGet();
+				return true;
+			}
+
+			return false;
+		}
+
+	}
+
+}
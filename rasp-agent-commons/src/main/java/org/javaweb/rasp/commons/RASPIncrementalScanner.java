@@ -0,0 +1,34 @@
+package org.javaweb.rasp.commons;
+
+import java.rasp.proxy.loader.HookResult;
+
+/**
+ * 单个请求的增量反序列化检测对象，按数据写入顺序接收请求体数据块，非线程安全
+ */
+public interface RASPIncrementalScanner {
+
+	/**
+	 * 检测新写入的数据块，数据块可能在任意位置被截断
+	 *
+	 * @param b   数据
+	 * @param off 数据偏移量
+	 * @param len 数据长度
+	 * @return 检测结果，返回HookResultType.THROW时阻断请求，返回null或其他结果时继续检测后续数据
+	 */
+	HookResult<?> update(byte[] b, int off, int len);
+
+	/**
+	 * 请求体已全部写入（或达到最大缓存大小）
+	 *
+	 * @return 检测结果，返回HookResultType.THROW时阻断请求
+	 */
+	HookResult<?> finish();
+
+	/**
+	 * 是否仍然需要缓存请求体，不需要时RASPOutputStreamCache只检测数据不缓存数据，getInputStream返回空输入流
+	 *
+	 * @return 是否缓存请求体
+	 */
+	boolean isBufferRequired();
+
+}
@@ -0,0 +1,21 @@
+package org.javaweb.rasp.commons;
+
+import org.javaweb.rasp.commons.context.RASPHttpRequestContext;
+
+/**
+ * 增量反序列化检测，RASPOutputStreamCache在请求体数据写入时将每个数据块交给RASPIncrementalScanner检测，
+ * 检测到恶意数据后立即阻断请求，不需要等待请求体上传完成，也不需要缓存完整的请求体再解析。
+ * <p>
+ * createScanner返回null时使用RASPSerialization.deserialization检测完整的请求体。
+ */
+public interface RASPIncrementalSerialization extends RASPSerialization {
+
+	/**
+	 * 创建当前请求的增量检测对象
+	 *
+	 * @param context RASP上下文
+	 * @return 增量检测对象，不支持增量检测时返回null
+	 */
+	RASPIncrementalScanner createScanner(RASPHttpRequestContext context);
+
+}
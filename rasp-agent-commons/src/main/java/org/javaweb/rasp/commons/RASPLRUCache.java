@@ -3,6 +3,9 @@ package org.javaweb.rasp.commons;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
+/**
+ * 非线程安全的固定大小缓存（按插入顺序淘汰），多线程共享时请使用RASPConcurrentLRUCache
+ */
 public class RASPLRUCache<K, V> extends LinkedHashMap<K, V> {
 
 	private static final long serialVersionUID = 1L;
@@ -0,0 +1,79 @@
+package org.javaweb.rasp.commons;
+
+import org.javaweb.rasp.commons.context.RASPHttpRequestContext;
+import org.javaweb.rasp.commons.utils.AhoCorasickMatcher;
+
+import java.rasp.proxy.loader.HookResult;
+
+import static java.rasp.proxy.loader.HookResultType.THROW;
+
+/**
+ * 基于关键字的增量检测对象，使用AhoCorasickMatcher在请求体数据块中查找关键字，跨数据块边界的关键字也能被检测到，
+ * 每找到一个关键字调用一次onToken，由子类判断是否需要阻断请求。
+ * <p>
+ * 默认不缓存请求体，子类需要在finish时解析完整请求体的可以重写isBufferRequired。
+ */
+public abstract class RASPTokenScanner implements RASPIncrementalScanner {
+
+	protected final RASPHttpRequestContext context;
+
+	protected final AhoCorasickMatcher matcher;
+
+	private final AhoCorasickMatcher.Scanner scanner;
+
+	/**
+	 * 已检测的字节数
+	 */
+	private long position;
+
+	/**
+	 * 创建关键字检测对象
+	 *
+	 * @param context RASP上下文
+	 * @param matcher 关键字匹配器，可以在多个请求中共享
+	 */
+	public RASPTokenScanner(RASPHttpRequestContext context, AhoCorasickMatcher matcher) {
+		this.context = context;
+		this.matcher = matcher;
+		this.scanner = matcher.newScanner();
+	}
+
+	@Override
+	public HookResult<?> update(byte[] b, int off, int len) {
+		int end = off + len;
+
+		for (int i = scanner.scan(b, off, len); i != -1; i = scanner.scan(b, i, end - i)) {
+			HookResult<?> result = onToken(scanner.getMatchPattern(), position + i - off);
+
+			if (result != null && result.getRASPHookResultType() == THROW) {
+				position += len;
+
+				return result;
+			}
+		}
+
+		position += len;
+
+		return null;
+	}
+
+	@Override
+	public HookResult<?> finish() {
+		return null;
+	}
+
+	@Override
+	public boolean isBufferRequired() {
+		return false;
+	}
+
+	/**
+	 * 找到关键字
+	 *
+	 * @param token 关键字
+	 * @param end   关键字结尾在请求体中的位置
+	 * @return 检测结果，返回null继续检测，返回HookResultType.THROW时阻断请求
+	 */
+	protected abstract HookResult<?> onToken(String token, long end);
+
+}
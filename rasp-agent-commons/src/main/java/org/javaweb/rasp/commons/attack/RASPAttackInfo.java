@@ -1,6 +1,7 @@
 package org.javaweb.rasp.commons.attack;
 
 import org.javaweb.rasp.commons.MethodHookEvent;
+import org.javaweb.rasp.commons.utils.RASPJsonWriter;
 
 import java.rasp.proxy.loader.RASPModuleType;
 
@@ -128,6 +129,28 @@ public class RASPAttackInfo {
 		this.traceElements = sb.toString();
 	}
 
+	/**
+	 * 使用RASPJsonWriter序列化攻击信息，字段名和字段顺序和Gson一致
+	 *
+	 * @param writer JSON输出对象
+	 */
+	public void writeJson(RASPJsonWriter writer) {
+		writer.beginObject()
+				.field("type", type)
+				.field("parameter", parameter)
+				.field("values", values)
+				.field("position", position)
+				.field("blockRequest", blockRequest);
+
+		if (methodHookInfo != null) {
+			methodHookInfo.writeJson(writer.name("methodHookInfo"));
+		}
+
+		writer.field("traceElements", traceElements)
+				.field("attackHash", attackHash)
+				.endObject();
+	}
+
 	/**
 	 * 获取攻击类型
 	 *
@@ -1,6 +1,7 @@
 package org.javaweb.rasp.commons.attack;
 
 import org.javaweb.rasp.commons.MethodHookEvent;
+import org.javaweb.rasp.commons.utils.RASPJsonWriter;
 
 /**
  * RASP Hook方法信息
@@ -35,6 +36,19 @@ public class RASPMethodHookInfo {
 		this.methodArgsDesc = event.getThisMethodArgsDesc();
 	}
 
+	/**
+	 * 使用RASPJsonWriter序列化Hook方法信息，字段名和字段顺序和Gson一致
+	 *
+	 * @param writer JSON输出对象
+	 */
+	public void writeJson(RASPJsonWriter writer) {
+		writer.beginObject()
+				.field("thisClass", thisClass)
+				.field("methodName", methodName)
+				.field("methodArgsDesc", methodArgsDesc)
+				.endObject();
+	}
+
 	public String getThisClass() {
 		return thisClass;
 	}
@@ -2,6 +2,8 @@ package org.javaweb.rasp.commons.cache;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 public class RASPByteArrayInputStream extends InputStream {
 
@@ -103,13 +105,61 @@ public class RASPByteArrayInputStream extends InputStream {
 	}
 
 	public void mark(int readAheadLimit) {
-		mark = readAheadLimit;
+		mark = pos;
 	}
 
 	public synchronized void reset() {
 		pos = mark;
 	}
 
+	/**
+	 * 将未读取的数据批量复制到dst中
+	 *
+	 * @param dst 目标缓冲区
+	 * @return 复制的字节数，没有可读取的数据时返回-1
+	 */
+	public synchronized int read(ByteBuffer dst) {
+		if (pos >= count) {
+			return -1;
+		}
+
+		int len = Math.min(dst.remaining(), count - pos);
+
+		dst.put(buf, pos, len);
+		pos += len;
+
+		return len;
+	}
+
+	/**
+	 * 将未读取的数据全部写入输出流
+	 *
+	 * @param out 输出流
+	 * @return 写入的字节数
+	 * @throws IOException 写入异常
+	 */
+	public synchronized long transferTo(OutputStream out) throws IOException {
+		int len = Math.max(0, count - pos);
+
+		out.write(buf, pos, len);
+		pos += len;
+
+		return len;
+	}
+
+	/**
+	 * 获取未读取数据的只读ByteBuffer视图，不复制数据也不修改读取位置，
+	 * 可以直接交给支持ByteBuffer的解析器；子类的数据不在连续数组中时（如：RASPChunkedInputStream）可能返回null，
+	 * 此时应改用read(ByteBuffer)或transferTo读取
+	 *
+	 * @return 只读ByteBuffer，position为0，limit为未读取的字节数；无法提供不复制数据的视图时返回null
+	 */
+	public synchronized ByteBuffer asByteBuffer() {
+		int len = Math.max(0, count - pos);
+
+		return ByteBuffer.wrap(buf, pos, len).slice().asReadOnlyBuffer();
+	}
+
 	public void close() throws IOException {
 		buf = null;
 
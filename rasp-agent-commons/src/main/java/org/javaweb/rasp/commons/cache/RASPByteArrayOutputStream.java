@@ -73,7 +73,7 @@ public class RASPByteArrayOutputStream extends OutputStream {
 	}
 
 	public RASPByteArrayInputStream toRASPByteArrayInputStream() {
-		return new RASPByteArrayInputStream(buf, 0, count);
+		return new RASPUnsyncByteArrayInputStream(buf, 0, count);
 	}
 
 	public synchronized void reset() {
@@ -16,6 +16,11 @@ public class RASPCachedParameter {
 
 	private RASPParameterPosition raspParameterPosition;
 
+	/**
+	 * 缓存的hashCode，参数缓存到RASPParameterSet时每次contains/add都会计算，避免重复Hash整个参数值数组
+	 */
+	private int hash;
+
 	public RASPCachedParameter(String key, String value, RASPParameterPosition raspParameterPosition) {
 		this.key = key != null ? key : "";
 		this.value = value != null ? new String[]{value} : new String[0];
@@ -34,6 +39,7 @@ public class RASPCachedParameter {
 
 	public void setKey(String key) {
 		this.key = key;
+		this.hash = 0;
 	}
 
 	public String[] getValue() {
@@ -42,6 +48,7 @@ public class RASPCachedParameter {
 
 	public void setValue(String[] value) {
 		this.value = value;
+		this.hash = 0;
 	}
 
 	public String[] getLowerCaseValue() {
@@ -64,6 +71,7 @@ public class RASPCachedParameter {
 
 	public void setRaspAttackPosition(RASPParameterPosition raspParameterPosition) {
 		this.raspParameterPosition = raspParameterPosition;
+		this.hash = 0;
 	}
 
 	public boolean containsValue(String value) {
@@ -90,9 +98,15 @@ public class RASPCachedParameter {
 
 	@Override
 	public int hashCode() {
-		int result = key != null ? key.hashCode() : 0;
-		result = 31 * result + Arrays.hashCode(value);
-		result = 31 * result + (raspParameterPosition != null ? raspParameterPosition.hashCode() : 0);
+		int result = hash;
+
+		if (result == 0) {
+			result = key != null ? key.hashCode() : 0;
+			result = 31 * result + Arrays.hashCode(value);
+			result = 31 * result + (raspParameterPosition != null ? raspParameterPosition.hashCode() : 0);
+			hash = result;
+		}
+
 		return result;
 	}
 
@@ -2,10 +2,9 @@ package org.javaweb.rasp.commons.cache;
 
 import org.javaweb.rasp.commons.context.RASPHttpRequestContext;
 
-import java.util.ArrayList;
-import java.util.List;
-
+import static org.javaweb.rasp.commons.config.RASPConfiguration.AGENT_PROPERTIES;
 import static org.javaweb.rasp.commons.utils.IOUtils.closeQuietly;
+import static org.javaweb.rasp.loader.AgentConstants.AGENT_NAME;
 
 /**
  * RASP 缓存请求对象封装,缓存请求中的各种参数信息
@@ -14,6 +13,31 @@ import static org.javaweb.rasp.commons.utils.IOUtils.closeQuietly;
  */
 public class RASPCachedRequest {
 
+	/**
+	 * 超过该参数个数的缓存对象不再复用，避免HashSet/HashMap在clear时遍历过大的桶数组
+	 */
+	private static final int MAX_RECYCLE_PARAMETER_SIZE = 1024;
+
+	/**
+	 * 当前线程回收的请求缓存对象，Servlet容器的工作线程会在请求结束后处理下一个请求，所以每个线程只需要缓存一个对象
+	 */
+	private static final ThreadLocal<RASPCachedRequest> RECYCLED_REQUEST = new ThreadLocal<RASPCachedRequest>();
+
+	/**
+	 * 当前绑定的RASP上下文，复用模式下请求结束后为null
+	 */
+	private RASPHttpRequestContext context;
+
+	/**
+	 * 是否允许被回收复用
+	 */
+	private final boolean recyclable;
+
+	/**
+	 * 是否已被回收
+	 */
+	private boolean recycled;
+
 	/**
 	 * 输入流
 	 */
@@ -35,9 +59,9 @@ public class RASPCachedRequest {
 	private Object output;
 
 	/**
-	 * 缓存SQL语句执行记录
+	 * 缓存SQL语句执行记录，达到sql_cache_max_size后淘汰最早缓存的SQL
 	 */
-	private final List<Integer> sqlHashCodes = new ArrayList<Integer>();
+	private final RASPIntHashSet sqlHashCodes;
 
 	/**
 	 * RASP Http的参数缓存
@@ -45,7 +69,61 @@ public class RASPCachedRequest {
 	private final RASPParameterSet<RASPCachedParameter> raspCachedParameterList;
 
 	public RASPCachedRequest(RASPHttpRequestContext context) {
-		raspCachedParameterList = new RASPParameterSet<RASPCachedParameter>(context);
+		this(context, false);
+	}
+
+	private RASPCachedRequest(RASPHttpRequestContext context, boolean recyclable) {
+		this.context = context;
+		this.recyclable = recyclable;
+		this.raspCachedParameterList = new RASPParameterSet<RASPCachedParameter>(context);
+		this.sqlHashCodes = new RASPIntHashSet(
+				AGENT_PROPERTIES.getSqlCacheInitialSize(), AGENT_PROPERTIES.getSqlCacheMaxSize()
+		);
+	}
+
+	/**
+	 * 获取RASP请求缓存对象，开启复用模式（context_recycle=true）时优先使用当前线程已回收的对象，
+	 * 缓存对象会在RASPHttpRequestContextManager.removeContext关闭上下文时被当前线程回收
+	 *
+	 * @param context RASP上下文
+	 * @return RASP请求缓存对象
+	 */
+	public static RASPCachedRequest obtain(RASPHttpRequestContext context) {
+		if (!AGENT_PROPERTIES.isContextRecycle()) {
+			return new RASPCachedRequest(context);
+		}
+
+		RASPCachedRequest cachedRequest = RECYCLED_REQUEST.get();
+
+		if (cachedRequest == null) {
+			return new RASPCachedRequest(context, true);
+		}
+
+		RECYCLED_REQUEST.set(null);
+
+		cachedRequest.context = context;
+		cachedRequest.recycled = false;
+		cachedRequest.raspCachedParameterList.setContext(context);
+
+		return cachedRequest;
+	}
+
+	/**
+	 * 检测缓存对象是否已被回收，复用模式下请求结束后继续使用缓存对象会污染下一个请求的数据
+	 */
+	private void checkRecycled() {
+		if (recycled) {
+			throw new IllegalStateException(AGENT_NAME + "RASPCachedRequest已回收，禁止在请求结束后继续使用！");
+		}
+	}
+
+	/**
+	 * 获取当前绑定的RASP上下文
+	 *
+	 * @return RASP上下文，复用模式下请求结束后返回null
+	 */
+	public RASPHttpRequestContext getContext() {
+		return context;
 	}
 
 //	/**
@@ -79,10 +157,14 @@ public class RASPCachedRequest {
 	 * @param hashcode SQL hashcode
 	 */
 	public void cacheSqlHashCode(int hashcode) {
+		checkRecycled();
+
 		this.sqlHashCodes.add(hashcode);
 	}
 
 	public boolean containsSQLQueryCache(int hashcode) {
+		checkRecycled();
+
 		return sqlHashCodes.contains(hashcode);
 	}
 
@@ -92,6 +174,8 @@ public class RASPCachedRequest {
 	 * @return 返回缓存在RASP上下文中的所有参数
 	 */
 	public RASPParameterSet<RASPCachedParameter> getCachedParameter() {
+		checkRecycled();
+
 		return raspCachedParameterList;
 	}
 
@@ -104,10 +188,14 @@ public class RASPCachedRequest {
 	}
 
 	public void initInputStreamCache(RASPOutputStreamCache out) {
+		checkRecycled();
+
 		this.inputStreamCache = out;
 	}
 
 	public void intOutputStreamCache(RASPOutputStreamCache out) {
+		checkRecycled();
+
 		this.outputStreamCache = out;
 	}
 
@@ -116,6 +204,8 @@ public class RASPCachedRequest {
 	}
 
 	public void setOutput(Object output) {
+		checkRecycled();
+
 		this.output = output;
 	}
 
@@ -124,22 +214,45 @@ public class RASPCachedRequest {
 	}
 
 	public void cacheRequestXMLData(String cachedXML) {
+		checkRecycled();
+
 		this.cachedXML = cachedXML;
 	}
 
 	/**
-	 * 关闭RASP请求缓存对象，同时清除缓存数据
+	 * 关闭RASP请求缓存对象，同时清除缓存数据并将输入输出流的缓存分片归还到分片池，复用模式下清除数据后由当前线程回收
 	 */
 	public void close() {
-		if (inputStreamCache != null)
+		if (recycled) return;
+
+		if (inputStreamCache != null) {
 			closeQuietly(inputStreamCache);
+			inputStreamCache.release();
+		}
 
-		if (outputStreamCache != null)
+		if (outputStreamCache != null) {
 			closeQuietly(outputStreamCache);
+			outputStreamCache.release();
+		}
+
+		boolean reusable = recyclable && raspCachedParameterList.size() <= MAX_RECYCLE_PARAMETER_SIZE;
 
 		this.cachedXML = null;
 		this.sqlHashCodes.clear();
 		this.raspCachedParameterList.clear();
+
+		if (recyclable) {
+			this.inputStreamCache = null;
+			this.outputStreamCache = null;
+			this.output = null;
+			this.context = null;
+			this.recycled = true;
+			this.raspCachedParameterList.setContext(null);
+
+			if (reusable && RECYCLED_REQUEST.get() == null) {
+				RECYCLED_REQUEST.set(this);
+			}
+		}
 	}
 
 }
@@ -0,0 +1,169 @@
+package org.javaweb.rasp.commons.cache;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 固定大小的byte[]分片池，缓存请求体/响应体时按分片申请内存，请求结束后归还，避免每个请求都重新分配大数组。
+ * <p>
+ * 分片池最多保留MAX_POOL_SIZE个空闲分片，超出的分片直接丢弃交给GC回收。分片归还后不会清零，
+ * 使用方只能读取自己写入的数据。
+ * <p>
+ * 直接内存分片用于分级缓存，所有请求使用中的直接内存分片总大小不能超过调用方传入的预算，
+ * 空闲的直接内存分片不会释放（释放直接内存依赖GC），只在使用中和空闲分片总大小超过预算时丢弃。
+ * allocateDirect申请的分片必须通过releaseDirect归还，未归还的分片被GC回收后占用的预算不会恢复。
+ */
+public class RASPChunkPool {
+
+	/**
+	 * 分片大小位移，分片大小固定为2的幂，按位运算计算分片索引
+	 */
+	public static final int CHUNK_SHIFT = 13;
+
+	/**
+	 * 分片大小：8KB
+	 */
+	public static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+	/**
+	 * 分片内偏移量掩码
+	 */
+	public static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	/**
+	 * 最多保留的空闲分片数：512个（4MB）
+	 */
+	private static final int MAX_POOL_SIZE = 512;
+
+	private static final Queue<byte[]> CHUNKS = new ConcurrentLinkedQueue<byte[]>();
+
+	/**
+	 * 空闲分片数，ConcurrentLinkedQueue.size需要遍历队列，单独计数
+	 */
+	private static final AtomicInteger POOL_SIZE = new AtomicInteger();
+
+	private static final Queue<ByteBuffer> DIRECT_CHUNKS = new ConcurrentLinkedQueue<ByteBuffer>();
+
+	/**
+	 * 空闲的直接内存分片数
+	 */
+	private static final AtomicInteger DIRECT_POOL_SIZE = new AtomicInteger();
+
+	/**
+	 * 使用中的直接内存大小，只在releaseDirect时减少，申请的直接内存分片必须归还，否则预算会永久减少
+	 */
+	private static final AtomicLong DIRECT_MEMORY_USED = new AtomicLong();
+
+	/**
+	 * 申请一个分片，分片池为空时创建新分片
+	 *
+	 * @return 分片
+	 */
+	public static byte[] allocate() {
+		byte[] chunk = CHUNKS.poll();
+
+		if (chunk != null) {
+			POOL_SIZE.decrementAndGet();
+			return chunk;
+		}
+
+		return new byte[CHUNK_SIZE];
+	}
+
+	/**
+	 * 归还分片，分片池已满时丢弃
+	 *
+	 * @param chunk 分片
+	 */
+	public static void release(byte[] chunk) {
+		if (chunk == null || chunk.length != CHUNK_SIZE) {
+			return;
+		}
+
+		if (POOL_SIZE.incrementAndGet() > MAX_POOL_SIZE) {
+			POOL_SIZE.decrementAndGet();
+			return;
+		}
+
+		CHUNKS.offer(chunk);
+	}
+
+	/**
+	 * 申请一个直接内存分片，使用中的直接内存超过预算时返回null
+	 *
+	 * @param budget 直接内存预算（字节）
+	 * @return 直接内存分片，超过预算或直接内存不足时返回null
+	 */
+	public static ByteBuffer allocateDirect(long budget) {
+		long used;
+
+		do {
+			used = DIRECT_MEMORY_USED.get();
+
+			if (used + CHUNK_SIZE > budget) {
+				return null;
+			}
+		} while (!DIRECT_MEMORY_USED.compareAndSet(used, used + CHUNK_SIZE));
+
+		ByteBuffer chunk = DIRECT_CHUNKS.poll();
+
+		if (chunk != null) {
+			DIRECT_POOL_SIZE.decrementAndGet();
+			chunk.clear();
+
+			return chunk;
+		}
+
+		try {
+			return ByteBuffer.allocateDirect(CHUNK_SIZE);
+		} catch (OutOfMemoryError e) {
+			// 超过-XX:MaxDirectMemorySize限制
+			DIRECT_MEMORY_USED.addAndGet(-CHUNK_SIZE);
+
+			return null;
+		}
+	}
+
+	/**
+	 * 归还直接内存分片，使用中和空闲的直接内存分片总大小超过预算时丢弃
+	 *
+	 * @param chunk  直接内存分片
+	 * @param budget 直接内存预算（字节）
+	 */
+	public static void releaseDirect(ByteBuffer chunk, long budget) {
+		if (chunk == null) {
+			return;
+		}
+
+		long used = DIRECT_MEMORY_USED.addAndGet(-CHUNK_SIZE);
+
+		if ((long) DIRECT_POOL_SIZE.incrementAndGet() * CHUNK_SIZE + used > budget) {
+			DIRECT_POOL_SIZE.decrementAndGet();
+			return;
+		}
+
+		DIRECT_CHUNKS.offer(chunk);
+	}
+
+	/**
+	 * 获取使用中的直接内存大小
+	 *
+	 * @return 直接内存大小（字节）
+	 */
+	public static long getDirectMemoryUsed() {
+		return DIRECT_MEMORY_USED.get();
+	}
+
+	/**
+	 * 获取空闲分片数
+	 *
+	 * @return 空闲分片数
+	 */
+	public static int getPoolSize() {
+		return POOL_SIZE.get();
+	}
+
+}
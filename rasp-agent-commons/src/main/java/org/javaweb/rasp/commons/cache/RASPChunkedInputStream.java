@@ -0,0 +1,208 @@
+package org.javaweb.rasp.commons.cache;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import static org.javaweb.rasp.commons.cache.RASPChunkPool.CHUNK_MASK;
+import static org.javaweb.rasp.commons.cache.RASPChunkPool.CHUNK_SIZE;
+
+/**
+ * RASPChunkedOutputStream缓存数据的输入流视图，直接跨分片读取，不复制缓存内容。
+ * <p>
+ * 分级缓存时同一个输入流依次读取堆内分片、直接内存分片和临时文件，对调用方透明。
+ * 为了兼容RASPSerialization，该类继承RASPByteArrayInputStream，pos、mark和count表示在缓存数据中的位置；
+ * 调用getBuf()时才会将缓存数据复制为连续的数组。缓存分片归还后继续读取会抛出IllegalStateException。
+ * 非线程安全，只能在单个请求线程中使用。
+ */
+public class RASPChunkedInputStream extends RASPByteArrayInputStream {
+
+	private static final byte[] EMPTY_BUF = new byte[0];
+
+	private final RASPChunkedOutputStream out;
+
+	RASPChunkedInputStream(RASPChunkedOutputStream out) {
+		super(EMPTY_BUF);
+
+		this.out = out;
+		this.count = out.size();
+	}
+
+	/**
+	 * 获取连续的缓存数组，第一次调用时复制所有分片数据
+	 *
+	 * @return 缓存数组
+	 */
+	@Override
+	public byte[] getBuf() {
+		if (buf == EMPTY_BUF && count > 0) {
+			byte[] bytes = new byte[count];
+			out.read(0, bytes, 0, count);
+			this.buf = bytes;
+		}
+
+		return buf;
+	}
+
+	@Override
+	public String getBufString() {
+		getBuf();
+
+		return super.getBufString();
+	}
+
+	@Override
+	public int read() {
+		if (pos >= count) {
+			return -1;
+		}
+
+		int b = out.read(pos);
+
+		if (b >= 0) {
+			pos++;
+		}
+
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) {
+		if (b == null) {
+			throw new NullPointerException();
+		} else if (off < 0 || len < 0 || len > b.length - off) {
+			throw new IndexOutOfBoundsException();
+		}
+
+		if (pos >= count) {
+			return -1;
+		}
+
+		if (len == 0) {
+			return 0;
+		}
+
+		int n = out.read(pos, b, off, Math.min(len, count - pos));
+
+		// 读取缓存临时文件失败
+		if (n == 0) {
+			return -1;
+		}
+
+		pos += n;
+
+		return n;
+	}
+
+	@Override
+	public long skip(long n) {
+		long k = count - pos;
+
+		if (n < k) {
+			k = n < 0 ? 0 : n;
+		}
+
+		pos += (int) k;
+		return k;
+	}
+
+	@Override
+	public int available() {
+		return count - pos;
+	}
+
+	@Override
+	public void mark(int readAheadLimit) {
+		mark = pos;
+	}
+
+	@Override
+	public void reset() {
+		pos = mark;
+	}
+
+	@Override
+	public int read(ByteBuffer dst) {
+		if (pos >= count) {
+			return -1;
+		}
+
+		int len = Math.min(dst.remaining(), count - pos);
+
+		if (len == 0) {
+			return 0;
+		}
+
+		if (dst.hasArray()) {
+			int n = read(dst.array(), dst.arrayOffset() + dst.position(), len);
+
+			if (n > 0) {
+				dst.position(dst.position() + n);
+			}
+
+			return n;
+		}
+
+		byte[] buffer = new byte[Math.min(len, CHUNK_SIZE)];
+		int    total  = 0;
+
+		while (total < len) {
+			int n = read(buffer, 0, Math.min(buffer.length, len - total));
+
+			if (n <= 0) {
+				break;
+			}
+
+			dst.put(buffer, 0, n);
+			total += n;
+		}
+
+		return total > 0 ? total : -1;
+	}
+
+	@Override
+	public long transferTo(OutputStream out) throws IOException {
+		byte[] buffer = new byte[CHUNK_SIZE];
+		long   total  = 0;
+		int    n;
+
+		while ((n = read(buffer, 0, buffer.length)) > 0) {
+			out.write(buffer, 0, n);
+			total += n;
+		}
+
+		return total;
+	}
+
+	/**
+	 * 获取未读取数据的只读ByteBuffer视图，不复制缓存数据；只有未读取的数据都在同一个堆内分片中
+	 * （或已调用过getBuf）时才能提供视图，数据跨分片或在直接内存分片、临时文件中时返回null，
+	 * 需要改用read(ByteBuffer)或transferTo分段读取，避免将全部缓存数据复制到堆内
+	 *
+	 * @return 只读ByteBuffer，无法提供不复制数据的视图时返回null
+	 */
+	@Override
+	public ByteBuffer asByteBuffer() {
+		if (buf != EMPTY_BUF) {
+			return super.asByteBuffer();
+		}
+
+		if (pos >= count) {
+			return ByteBuffer.wrap(EMPTY_BUF).asReadOnlyBuffer();
+		}
+
+		byte[] chunk = out.getHeapChunk(pos, count);
+
+		if (chunk == null) {
+			return null;
+		}
+
+		return ByteBuffer.wrap(chunk, pos & CHUNK_MASK, count - pos).slice().asReadOnlyBuffer();
+	}
+
+	@Override
+	public void close() {
+		this.closed = true;
+	}
+
+}
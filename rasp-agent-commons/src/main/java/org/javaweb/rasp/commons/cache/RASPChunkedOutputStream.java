@@ -0,0 +1,690 @@
+package org.javaweb.rasp.commons.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static org.javaweb.rasp.commons.cache.RASPChunkPool.*;
+import static org.javaweb.rasp.commons.config.RASPConfiguration.RASP_TMP_DIRECTORY;
+
+/**
+ * 分片缓存输出流，数据写入从RASPChunkPool申请的固定大小分片中，扩容时不需要复制已写入的数据。
+ * <p>
+ * 和RASPByteArrayOutputStream相比：缓存10MB请求体时不会产生约20MB的数组复制和多次扩容，也不会在结尾留下大量未使用的数组空间；
+ * getInputStream返回的输入流直接读取分片数据，不复制缓存内容。close后分片归还到分片池，之前创建的输入流不能继续使用。
+ * <p>
+ * 使用分级缓存构造方法创建时，前heapSize字节缓存在堆内分片中，之后使用直接内存分片（受所有请求共享的直接内存预算限制），
+ * 超过预算后写入RASP临时文件目录（RASP_TMP_DIRECTORY）中只有当前用户可以读写的临时文件，close时删除临时文件。
+ * 临时文件读写失败时停止缓存后续数据，已缓存的数据仍然可以读取。
+ * <p>
+ * 直接内存分片只在reset或close时归还到直接内存预算，使用方必须在请求结束时close（RASPCachedRequest.close），
+ * 未close的流被GC回收后占用的预算不会恢复。
+ * 非线程安全，只能在单个请求线程中使用。
+ */
+public class RASPChunkedOutputStream extends OutputStream {
+
+	private static final byte[][] EMPTY_CHUNKS = new byte[0][];
+
+	/**
+	 * 预先分配的最大分片数，避免错误的Content-Length导致分配过大的分片数组
+	 */
+	private static final int MAX_PRESIZE_CHUNKS = 4096;
+
+	/**
+	 * 临时文件前缀
+	 */
+	private static final String SPILL_FILE_PREFIX = "rasp-stream-";
+
+	/**
+	 * 临时文件后缀
+	 */
+	private static final String SPILL_FILE_SUFFIX = ".tmp";
+
+	/**
+	 * 是否使用分级缓存
+	 */
+	private final boolean tiered;
+
+	/**
+	 * 分级缓存时堆内分片数
+	 */
+	private final int heapChunks;
+
+	/**
+	 * 直接内存预算
+	 */
+	private final long memoryBudget;
+
+	/**
+	 * 堆内分片数组，只有最后一个内存分片可能未写满
+	 */
+	private byte[][] chunks;
+
+	/**
+	 * 直接内存分片数组，和chunks使用相同的下标，同一个下标只有一个数组中的分片不为null
+	 */
+	private ByteBuffer[] directChunks;
+
+	/**
+	 * 已申请的内存分片数
+	 */
+	private int chunkCount;
+
+	/**
+	 * 已写入的字节数
+	 */
+	private int count;
+
+	/**
+	 * 是否已写入临时文件，写入临时文件后所有数据都追加到临时文件中
+	 */
+	private boolean spilled;
+
+	/**
+	 * 直接内存预算已用完时是否不再申请直接内存
+	 */
+	private boolean directExhausted;
+
+	/**
+	 * 临时文件读写失败，不再缓存后续数据
+	 */
+	private boolean truncated;
+
+	private File spillFile;
+
+	private RandomAccessFile spillRaf;
+
+	private FileChannel spillChannel;
+
+	/**
+	 * 临时文件中第一个字节在缓存数据中的位置
+	 */
+	private int spillOffset;
+
+	/**
+	 * 已写入临时文件的字节数
+	 */
+	private int spillLength;
+
+	/**
+	 * 临时文件写缓存
+	 */
+	private byte[] spillBuffer;
+
+	/**
+	 * 临时文件写缓存中的字节数
+	 */
+	private int spillBufferCount;
+
+	/**
+	 * 临时文件读缓存，用于按字节读取临时文件中的数据
+	 */
+	private byte[] readBuffer;
+
+	/**
+	 * 读缓存第一个字节在临时文件中的位置
+	 */
+	private int readBufferStart;
+
+	/**
+	 * 读缓存中的字节数
+	 */
+	private int readBufferLength;
+
+	/**
+	 * 分片是否已归还
+	 */
+	private boolean released;
+
+	public RASPChunkedOutputStream() {
+		this(0);
+	}
+
+	/**
+	 * 创建分片缓存输出流，所有数据都缓存在堆内分片中
+	 *
+	 * @param expectedSize 预计写入的字节数，如：请求的Content-Length，用于预先分配分片数组
+	 */
+	public RASPChunkedOutputStream(int expectedSize) {
+		this(expectedSize, false, 0, 0);
+	}
+
+	/**
+	 * 创建分级缓存输出流
+	 *
+	 * @param expectedSize 预计写入的字节数，如：请求的Content-Length，用于预先分配分片数组
+	 * @param heapSize     堆内缓存的字节数
+	 * @param memoryBudget 所有请求共享的直接内存预算（字节）
+	 */
+	public RASPChunkedOutputStream(int expectedSize, long heapSize, long memoryBudget) {
+		this(expectedSize, true, heapSize, memoryBudget);
+	}
+
+	private RASPChunkedOutputStream(int expectedSize, boolean tiered, long heapSize, long memoryBudget) {
+		this.tiered = tiered;
+		this.heapChunks = (int) Math.min(Integer.MAX_VALUE, (Math.max(0, heapSize) + CHUNK_MASK) >>> CHUNK_SHIFT);
+		this.memoryBudget = memoryBudget;
+
+		long size = Math.max(0, ((long) expectedSize + CHUNK_MASK) >>> CHUNK_SHIFT);
+
+		// 分级缓存时只预先分配内存分片数组
+		if (tiered) {
+			size = Math.min(size, heapChunks + (memoryBudget >>> CHUNK_SHIFT));
+		}
+
+		this.chunks = size > 0 ? new byte[(int) Math.min(size, MAX_PRESIZE_CHUNKS)][] : EMPTY_CHUNKS;
+	}
+
+	private void checkReleased() {
+		if (released) {
+			throw new IllegalStateException("RASPChunkedOutputStream已释放！");
+		}
+	}
+
+	/**
+	 * 当前内存分片已写满时申请新分片：分级缓存时依次申请堆内分片、直接内存分片，都不可用时开始写入临时文件
+	 */
+	private void allocateChunk() {
+		if (chunkCount == chunks.length) {
+			int      capacity  = Math.max(4, chunkCount << 1);
+			byte[][] newChunks = new byte[capacity][];
+
+			System.arraycopy(chunks, 0, newChunks, 0, chunkCount);
+			chunks = newChunks;
+
+			if (directChunks != null) {
+				ByteBuffer[] newDirectChunks = new ByteBuffer[capacity];
+				System.arraycopy(directChunks, 0, newDirectChunks, 0, chunkCount);
+				directChunks = newDirectChunks;
+			}
+		}
+
+		if (tiered && chunkCount >= heapChunks) {
+			ByteBuffer chunk = directExhausted ? null : allocateDirect(memoryBudget);
+
+			if (chunk != null) {
+				if (directChunks == null) {
+					directChunks = new ByteBuffer[chunks.length];
+				}
+
+				directChunks[chunkCount++] = chunk;
+				return;
+			}
+
+			// 预算用完后不再申请直接内存，保证缓存数据的顺序为：内存分片、临时文件
+			directExhausted = true;
+
+			if (startSpill()) {
+				return;
+			}
+		}
+
+		// 未开启分级缓存或无法创建临时文件时使用堆内分片
+		chunks[chunkCount++] = allocate();
+	}
+
+	/**
+	 * 创建临时文件，之后写入的数据都追加到临时文件中
+	 */
+	private boolean startSpill() {
+		try {
+			this.spillFile = File.createTempFile(SPILL_FILE_PREFIX, SPILL_FILE_SUFFIX, RASP_TMP_DIRECTORY);
+
+			// 请求体中可能包含敏感数据，写入数据前限制只有当前用户可以读写
+			spillFile.setReadable(false, false);
+			spillFile.setWritable(false, false);
+			spillFile.setReadable(true, true);
+			spillFile.setWritable(true, true);
+
+			this.spillRaf = new RandomAccessFile(spillFile, "rw");
+			this.spillChannel = spillRaf.getChannel();
+			this.spillBuffer = allocate();
+			this.spillOffset = count;
+			this.spilled = true;
+
+			return true;
+		} catch (IOException e) {
+			closeSpillFile();
+
+			return false;
+		}
+	}
+
+	/**
+	 * 将临时文件写缓存写入临时文件
+	 */
+	private void flushSpillBuffer() {
+		ByteBuffer buffer = ByteBuffer.wrap(spillBuffer, 0, spillBufferCount);
+
+		try {
+			while (buffer.hasRemaining()) {
+				spillChannel.write(buffer, spillLength + buffer.position());
+			}
+
+			spillLength += spillBufferCount;
+			spillBufferCount = 0;
+		} catch (IOException e) {
+			// 临时文件写入失败，丢弃写缓存中的数据并停止缓存
+			count -= spillBufferCount;
+			spillBufferCount = 0;
+			truncated = true;
+		}
+	}
+
+	private void writeSpill(byte[] b, int off, int len) {
+		while (len > 0 && !truncated) {
+			int size = Math.min(len, CHUNK_SIZE - spillBufferCount);
+
+			System.arraycopy(b, off, spillBuffer, spillBufferCount, size);
+
+			off += size;
+			len -= size;
+			count += size;
+			spillBufferCount += size;
+
+			if (spillBufferCount == CHUNK_SIZE) {
+				flushSpillBuffer();
+			}
+		}
+	}
+
+	@Override
+	public void write(int b) {
+		checkReleased();
+
+		if (truncated) {
+			return;
+		}
+
+		if (count == Integer.MAX_VALUE) {
+			throw new OutOfMemoryError();
+		}
+
+		if (spilled) {
+			spillBuffer[spillBufferCount++] = (byte) b;
+			count++;
+
+			if (spillBufferCount == CHUNK_SIZE) {
+				flushSpillBuffer();
+			}
+
+			return;
+		}
+
+		int index = count >>> CHUNK_SHIFT;
+
+		if (index == chunkCount) {
+			allocateChunk();
+
+			if (spilled) {
+				write(b);
+				return;
+			}
+		}
+
+		byte[] chunk = chunks[index];
+
+		if (chunk != null) {
+			chunk[count & CHUNK_MASK] = (byte) b;
+		} else {
+			directChunks[index].put(count & CHUNK_MASK, (byte) b);
+		}
+
+		count++;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) {
+		if ((off < 0) || (off > b.length) || (len < 0) || ((off + len) - b.length > 0)) {
+			throw new IndexOutOfBoundsException();
+		}
+
+		checkReleased();
+
+		if (len > Integer.MAX_VALUE - count) {
+			throw new OutOfMemoryError();
+		}
+
+		while (len > 0 && !truncated) {
+			if (spilled) {
+				writeSpill(b, off, len);
+				return;
+			}
+
+			int index = count >>> CHUNK_SHIFT;
+
+			if (index == chunkCount) {
+				allocateChunk();
+				continue;
+			}
+
+			int    position = count & CHUNK_MASK;
+			int    size     = Math.min(len, CHUNK_SIZE - position);
+			byte[] chunk    = chunks[index];
+
+			if (chunk != null) {
+				System.arraycopy(b, off, chunk, position, size);
+			} else {
+				ByteBuffer buffer = directChunks[index];
+				buffer.position(position);
+				buffer.put(b, off, size);
+			}
+
+			off += size;
+			len -= size;
+			count += size;
+		}
+	}
+
+	/**
+	 * 从position位置读取最多len个字节到b中
+	 *
+	 * @param position 读取位置
+	 * @param b        目标数组
+	 * @param off      目标数组偏移量
+	 * @param len      最多读取的字节数
+	 * @return 读取的字节数，position超过已写入的字节数或读取临时文件失败时返回0
+	 */
+	public int read(int position, byte[] b, int off, int len) {
+		checkReleased();
+
+		int n = Math.max(0, Math.min(len, count - position));
+		int i = 0;
+
+		// 读取内存分片
+		while (i < n && (!spilled || position + i < spillOffset)) {
+			int    pos   = position + i;
+			int    index = pos >>> CHUNK_SHIFT;
+			int    size  = Math.min(n - i, CHUNK_SIZE - (pos & CHUNK_MASK));
+			byte[] chunk = chunks[index];
+
+			if (chunk != null) {
+				System.arraycopy(chunk, pos & CHUNK_MASK, b, off + i, size);
+			} else {
+				ByteBuffer buffer = directChunks[index];
+				buffer.position(pos & CHUNK_MASK);
+				buffer.get(b, off + i, size);
+			}
+
+			i += size;
+		}
+
+		// 读取临时文件
+		if (i < n) {
+			int fileOffset = position + i - spillOffset;
+
+			if (fileOffset < spillLength) {
+				int size = Math.min(n - i, spillLength - fileOffset);
+
+				if (!readSpillFile(fileOffset, b, off + i, size)) {
+					return i;
+				}
+
+				i += size;
+				fileOffset += size;
+			}
+
+			// 读取临时文件写缓存
+			if (i < n) {
+				System.arraycopy(spillBuffer, fileOffset - spillLength, b, off + i, n - i);
+				i = n;
+			}
+		}
+
+		return i;
+	}
+
+	private boolean readSpillFile(long fileOffset, byte[] b, int off, int len) {
+		ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+
+		try {
+			while (buffer.hasRemaining()) {
+				if (spillChannel.read(buffer, fileOffset + buffer.position() - off) < 0) {
+					return false;
+				}
+			}
+
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * 获取[position, end)之间的数据所在的堆内分片，用于提供不复制数据的视图
+	 *
+	 * @param position 开始位置
+	 * @param end      结束位置（不包含），必须大于position
+	 * @return 堆内分片，数据跨分片或不在堆内分片中（直接内存分片、临时文件）时返回null
+	 */
+	byte[] getHeapChunk(int position, int end) {
+		checkReleased();
+
+		if (position < 0 || end > count || (spilled && end > spillOffset)) {
+			return null;
+		}
+
+		int index = position >>> CHUNK_SHIFT;
+
+		if (((end - 1) >>> CHUNK_SHIFT) != index) {
+			return null;
+		}
+
+		return chunks[index];
+	}
+
+	/**
+	 * 读取position位置的字节
+	 *
+	 * @param position 读取位置
+	 * @return 字节值，position超过已写入的字节数或读取临时文件失败时返回-1
+	 */
+	public int read(int position) {
+		checkReleased();
+
+		if (position < 0 || position >= count) {
+			return -1;
+		}
+
+		if (!spilled || position < spillOffset) {
+			byte[] chunk = chunks[position >>> CHUNK_SHIFT];
+
+			if (chunk != null) {
+				return chunk[position & CHUNK_MASK] & 0xff;
+			}
+
+			return directChunks[position >>> CHUNK_SHIFT].get(position & CHUNK_MASK) & 0xff;
+		}
+
+		int fileOffset = position - spillOffset;
+
+		if (fileOffset >= spillLength) {
+			return spillBuffer[fileOffset - spillLength] & 0xff;
+		}
+
+		// 按字节读取临时文件时使用读缓存
+		if (fileOffset < readBufferStart || fileOffset >= readBufferStart + readBufferLength) {
+			if (readBuffer == null) {
+				readBuffer = allocate();
+			}
+
+			int size = Math.min(CHUNK_SIZE, spillLength - fileOffset);
+
+			if (!readSpillFile(fileOffset, readBuffer, 0, size)) {
+				readBufferLength = 0;
+				return -1;
+			}
+
+			readBufferStart = fileOffset;
+			readBufferLength = size;
+		}
+
+		return readBuffer[fileOffset - readBufferStart] & 0xff;
+	}
+
+	public void writeTo(OutputStream out) throws IOException {
+		checkReleased();
+
+		byte[] buffer = null;
+
+		for (int position = 0; position < count; ) {
+			int    size  = Math.min(count - position, CHUNK_SIZE - (position & CHUNK_MASK));
+			byte[] chunk = !spilled || position < spillOffset ? chunks[position >>> CHUNK_SHIFT] : null;
+
+			if (chunk != null) {
+				out.write(chunk, position & CHUNK_MASK, size);
+			} else {
+				if (buffer == null) {
+					buffer = new byte[CHUNK_SIZE];
+				}
+
+				size = read(position, buffer, 0, size);
+
+				if (size == 0) {
+					throw new IOException("读取缓存临时文件失败：" + spillFile);
+				}
+
+				out.write(buffer, 0, size);
+			}
+
+			position += size;
+		}
+	}
+
+	public byte[] toByteArray() {
+		byte[] bytes = new byte[count];
+		read(0, bytes, 0, count);
+
+		return bytes;
+	}
+
+	/**
+	 * 获取读取缓存数据的输入流，输入流直接读取分片数据，不复制缓存内容
+	 *
+	 * @return 输入流
+	 */
+	public RASPChunkedInputStream getInputStream() {
+		checkReleased();
+
+		return new RASPChunkedInputStream(this);
+	}
+
+	public int size() {
+		return count;
+	}
+
+	public boolean isReleased() {
+		return released;
+	}
+
+	/**
+	 * 是否已将部分数据写入临时文件
+	 *
+	 * @return 是否已写入临时文件
+	 */
+	public boolean isSpilled() {
+		return spilled;
+	}
+
+	/**
+	 * 临时文件读写失败后不再缓存后续数据
+	 *
+	 * @return 缓存数据是否不完整
+	 */
+	public boolean isTruncated() {
+		return truncated;
+	}
+
+	/**
+	 * 删除临时文件目录中的缓存临时文件，Agent启动时调用，清除进程异常退出时未删除的临时文件
+	 *
+	 * @param dir 临时文件目录
+	 */
+	public static void deleteSpillFiles(File dir) {
+		File[] files = dir != null ? dir.listFiles() : null;
+
+		if (files == null) {
+			return;
+		}
+
+		for (File file : files) {
+			String name = file.getName();
+
+			if (name.startsWith(SPILL_FILE_PREFIX) && name.endsWith(SPILL_FILE_SUFFIX)) {
+				file.delete();
+			}
+		}
+	}
+
+	private void closeSpillFile() {
+		if (spillRaf != null) {
+			try {
+				spillRaf.close();
+			} catch (IOException ignored) {
+			}
+		}
+
+		if (spillFile != null && !spillFile.delete()) {
+			spillFile.deleteOnExit();
+		}
+
+		this.spillFile = null;
+		this.spillRaf = null;
+		this.spillChannel = null;
+	}
+
+	/**
+	 * 清空缓存数据，归还所有分片并删除临时文件
+	 */
+	public void reset() {
+		for (int i = 0; i < chunkCount; i++) {
+			if (chunks[i] != null) {
+				release(chunks[i]);
+				chunks[i] = null;
+			} else {
+				releaseDirect(directChunks[i], memoryBudget);
+				directChunks[i] = null;
+			}
+		}
+
+		if (spilled) {
+			closeSpillFile();
+			release(spillBuffer);
+
+			this.spillBuffer = null;
+			this.spillLength = 0;
+			this.spillBufferCount = 0;
+			this.spilled = false;
+		}
+
+		if (readBuffer != null) {
+			release(readBuffer);
+
+			this.readBuffer = null;
+			this.readBufferLength = 0;
+		}
+
+		this.chunkCount = 0;
+		this.count = 0;
+		this.directExhausted = false;
+		this.truncated = false;
+	}
+
+	/**
+	 * 归还所有分片并删除临时文件，关闭后不能继续写入或读取
+	 */
+	@Override
+	public void close() {
+		if (released) return;
+
+		reset();
+
+		this.chunks = EMPTY_CHUNKS;
+		this.directChunks = null;
+		this.released = true;
+	}
+
+}
@@ -0,0 +1,266 @@
+package org.javaweb.rasp.commons.cache;
+
+import java.util.Arrays;
+
+/**
+ * 基于开放地址法（线性探测）的int集合，直接存储原始int值，添加和查询时不会产生装箱对象，
+ * 用于缓存单个请求中已检测过的SQL语句hashcode。
+ * <p>
+ * 集合元素个数达到maxSize后按照先进先出的顺序淘汰最早添加的元素，淘汰的SQL只会被重新检测一次，不影响检测结果。
+ * 非线程安全，只能在单个请求线程中使用。
+ */
+public class RASPIntHashSet {
+
+	/**
+	 * 空槽位标识，值为0的元素单独使用containsZero记录
+	 */
+	private static final int FREE = 0;
+
+	/**
+	 * 默认初始容量
+	 */
+	public static final int DEFAULT_INITIAL_SIZE = 16;
+
+	/**
+	 * 默认最大元素个数
+	 */
+	public static final int DEFAULT_MAX_SIZE = 4096;
+
+	/**
+	 * 最大元素个数上限，避免错误的配置导致分配过大的数组
+	 */
+	private static final int MAX_SIZE_LIMIT = 1 << 20;
+
+	/**
+	 * 哈希表，容量始终是2的幂，负载因子不超过0.5
+	 */
+	private int[] table;
+
+	/**
+	 * 哈希表掩码
+	 */
+	private int mask;
+
+	/**
+	 * 是否包含0
+	 */
+	private boolean containsZero;
+
+	/**
+	 * 元素个数
+	 */
+	private int size;
+
+	/**
+	 * 按添加顺序记录元素，达到maxSize后作为环形队列使用
+	 */
+	private int[] order;
+
+	/**
+	 * 环形队列中最早添加的元素位置
+	 */
+	private int head;
+
+	/**
+	 * 最大元素个数
+	 */
+	private final int maxSize;
+
+	public RASPIntHashSet() {
+		this(DEFAULT_INITIAL_SIZE, DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * 创建int集合
+	 *
+	 * @param initialSize 初始容量提示
+	 * @param maxSize     最大元素个数，超过后淘汰最早添加的元素
+	 */
+	public RASPIntHashSet(int initialSize, int maxSize) {
+		this.maxSize = Math.min(Math.max(maxSize, 1), MAX_SIZE_LIMIT);
+
+		int initial = Math.min(Math.max(initialSize, 1), this.maxSize);
+
+		this.table = new int[tableSizeFor(initial)];
+		this.mask = table.length - 1;
+		this.order = new int[initial];
+	}
+
+	private static int tableSizeFor(int size) {
+		int capacity = 2;
+
+		while (capacity < size * 2) {
+			capacity <<= 1;
+		}
+
+		return capacity;
+	}
+
+	private static int mix(int value) {
+		int h = value * 0x9E3779B9;
+
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * 查询元素是否存在
+	 *
+	 * @param value 元素
+	 * @return 是否存在
+	 */
+	public boolean contains(int value) {
+		if (value == FREE) {
+			return containsZero;
+		}
+
+		return indexOf(value) >= 0;
+	}
+
+	private int indexOf(int value) {
+		int[] tab  = table;
+		int   slot = mix(value) & mask;
+
+		while (true) {
+			int current = tab[slot];
+
+			if (current == value) {
+				return slot;
+			}
+
+			if (current == FREE) {
+				return -1;
+			}
+
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	/**
+	 * 添加元素，集合已满时淘汰最早添加的元素
+	 *
+	 * @param value 元素
+	 * @return 元素已存在时返回false
+	 */
+	public boolean add(int value) {
+		if (contains(value)) {
+			return false;
+		}
+
+		if (size == maxSize) {
+			// 淘汰最早添加的元素，并复用其在环形队列中的位置
+			remove(order[head]);
+			order[head] = value;
+			head = (head + 1) % maxSize;
+		} else {
+			if (size == order.length) {
+				order = Arrays.copyOf(order, Math.min(Math.max(size * 2, 1), maxSize));
+			}
+
+			order[size] = value;
+		}
+
+		if (value == FREE) {
+			containsZero = true;
+		} else {
+			if ((size + 1) * 2 > table.length) {
+				resize(table.length << 1);
+			}
+
+			insert(table, mask, value);
+		}
+
+		size++;
+
+		return true;
+	}
+
+	private static void insert(int[] tab, int mask, int value) {
+		int slot = mix(value) & mask;
+
+		while (tab[slot] != FREE) {
+			slot = (slot + 1) & mask;
+		}
+
+		tab[slot] = value;
+	}
+
+	private void resize(int capacity) {
+		int[] newTable = new int[capacity];
+		int   newMask  = capacity - 1;
+
+		for (int value : table) {
+			if (value != FREE) {
+				insert(newTable, newMask, value);
+			}
+		}
+
+		this.table = newTable;
+		this.mask = newMask;
+	}
+
+	/**
+	 * 从哈希表中删除元素，使用后移删除（backward shift）代替墓碑标记，保证探测链长度不会随着淘汰次数增长
+	 *
+	 * @param value 元素
+	 */
+	private void remove(int value) {
+		size--;
+
+		if (value == FREE) {
+			containsZero = false;
+			return;
+		}
+
+		int[] tab  = table;
+		int   last = indexOf(value);
+		int   slot = last;
+
+		while (true) {
+			slot = (slot + 1) & mask;
+
+			int current = tab[slot];
+
+			if (current == FREE) {
+				tab[last] = FREE;
+				return;
+			}
+
+			int ideal = mix(current) & mask;
+
+			// 当前元素的理想位置不在(last, slot]区间内时可以前移到last
+			if (((slot - ideal) & mask) >= ((slot - last) & mask)) {
+				tab[last] = current;
+				last = slot;
+			}
+		}
+	}
+
+	/**
+	 * 获取元素个数
+	 *
+	 * @return 元素个数
+	 */
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * 清除所有元素，保留已分配的数组以便复用
+	 */
+	public void clear() {
+		if (size == 0) {
+			return;
+		}
+
+		Arrays.fill(table, FREE);
+
+		this.containsZero = false;
+		this.size = 0;
+		this.head = 0;
+	}
+
+}
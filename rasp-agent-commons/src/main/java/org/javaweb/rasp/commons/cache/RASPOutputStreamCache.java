@@ -1,5 +1,7 @@
 package org.javaweb.rasp.commons.cache;
 
+import org.javaweb.rasp.commons.RASPIncrementalScanner;
+import org.javaweb.rasp.commons.RASPIncrementalSerialization;
 import org.javaweb.rasp.commons.RASPSerialization;
 import org.javaweb.rasp.commons.context.RASPHttpRequestContext;
 
@@ -8,6 +10,7 @@ import java.io.OutputStream;
 import java.rasp.proxy.loader.HookResult;
 
 import static java.rasp.proxy.loader.HookResultType.THROW;
+import static org.javaweb.rasp.commons.config.RASPConfiguration.AGENT_PROPERTIES;
 
 public class RASPOutputStreamCache extends OutputStream {
 
@@ -30,12 +33,30 @@ public class RASPOutputStreamCache extends OutputStream {
 	 */
 	RASPHttpRequestContext context;
 
+	/**
+	 * 增量检测对象，serialization实现了RASPIncrementalSerialization时在数据写入时检测，检测到攻击后为null
+	 */
+	private RASPIncrementalScanner scanner;
+
+	/**
+	 * 是否缓存数据，增量检测不需要缓存请求体时只检测数据
+	 */
+	private boolean buffered = true;
+
+	/**
+	 * write(int)写入增量检测对象时使用的临时数组
+	 */
+	private byte[] singleByte;
+
 	/**
 	 * 非API请求默认最大值不能超过100M
 	 */
 	private static final int DEFAULT_MAX_SIZE = 100 * 1024 * 1024;
 
-	private final RASPByteArrayOutputStream cachedStream = new RASPByteArrayOutputStream();
+	/**
+	 * 缓存流，按Content-Length预先分配分片数组，请求结束后（RASPCachedRequest.close）归还分片
+	 */
+	private final RASPChunkedOutputStream cachedStream;
 
 	/**
 	 * 创建RASP输出流缓存对象
@@ -51,38 +72,127 @@ public class RASPOutputStreamCache extends OutputStream {
 		// 只有API请求时才需要反序列化
 		if (context.isWebApiRequest()) {
 			this.serialization = serialization;
+
+			if (serialization instanceof RASPIncrementalSerialization) {
+				this.scanner = ((RASPIncrementalSerialization) serialization).createScanner(context);
+				this.buffered = scanner == null || scanner.isBufferRequired();
+			}
 		} else {
 			this.serialization = null;
 
 			// 非API请求必须限制缓存流字节数，缓存字节数最大值那么必须大于0，小于100M
 			if (contentLength == -1 || contentLength > DEFAULT_MAX_SIZE) {
 				this.maxCacheSize = maxCacheSize;
+				this.cachedStream = createCachedStream(Math.min(contentLength, maxCacheSize));
 				return;
 			}
 		}
 
 		this.maxCacheSize = contentLength;
+		this.cachedStream = createCachedStream(contentLength);
+	}
+
+	/**
+	 * 创建缓存流，开启servlet_stream_spill后使用分级缓存（堆内、直接内存、临时文件）
+	 *
+	 * @param expectedSize 预计缓存的字节数
+	 * @return 缓存流
+	 */
+	private static RASPChunkedOutputStream createCachedStream(int expectedSize) {
+		if (AGENT_PROPERTIES.isServletStreamSpill()) {
+			return new RASPChunkedOutputStream(
+					expectedSize, AGENT_PROPERTIES.getServletStreamHeapSize(),
+					AGENT_PROPERTIES.getServletStreamMemoryBudget()
+			);
+		}
+
+		return new RASPChunkedOutputStream(expectedSize);
 	}
 
 	/**
-	 * 获取缓存输入流
+	 * 获取缓存输入流，增量检测不需要缓存请求体时返回空输入流
 	 *
 	 * @return 缓存输入流
 	 */
 	public RASPByteArrayInputStream getInputStream() {
-		return cachedStream.toRASPByteArrayInputStream();
+		return cachedStream.getInputStream();
+	}
+
+	/**
+	 * 获取已缓存的字节数
+	 *
+	 * @return 缓存大小
+	 */
+	public int size() {
+		return cachedStream.size();
 	}
 
 	@Override
 	public void write(int b) throws IOException {
-		// 检测当前缓存的byte是否已经超过最大的缓存值
-		if (maxCacheSize > 0 && cachedBufferSize > maxCacheSize) {
+		// 检测当前缓存的byte是否已经达到最大的缓存值，请求结束后缓存已释放，不再缓存异步写入的数据
+		if ((maxCacheSize > 0 && cachedBufferSize >= maxCacheSize) || cachedStream.isReleased()) {
 			return;
 		}
 
-		cachedStream.write(b);
+		if (buffered) {
+			cachedStream.write(b);
+		}
+
 		cachedBufferSize++;
 
+		if (scanner != null) {
+			if (singleByte == null) {
+				singleByte = new byte[1];
+			}
+
+			singleByte[0] = (byte) b;
+			inspect(singleByte, 0, 1);
+		}
+
+		// 检测缓存流是否达到了最大值
+		if (cachedBufferSize == maxCacheSize) {
+			completed();
+		}
+	}
+
+	/**
+	 * 批量缓存Servlet输入输出流读写的数据，最多缓存maxCacheSize个字节，超出部分直接忽略，
+	 * 缓存字节数达到maxCacheSize时触发一次completed()
+	 *
+	 * @param b   数据
+	 * @param off 数据偏移量
+	 * @param len 数据长度
+	 * @throws IOException 检测到攻击且非静默模式时抛出异常
+	 */
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if ((off < 0) || (off > b.length) || (len < 0) || ((off + len) - b.length > 0)) {
+			throw new IndexOutOfBoundsException();
+		}
+
+		if (len == 0 || cachedStream.isReleased()) {
+			return;
+		}
+
+		if (maxCacheSize > 0) {
+			// 只缓存到最大缓存值为止
+			len = Math.min(len, maxCacheSize - cachedBufferSize);
+
+			if (len <= 0) {
+				return;
+			}
+		}
+
+		if (buffered) {
+			cachedStream.write(b, off, len);
+		}
+
+		cachedBufferSize += len;
+
+		if (scanner != null) {
+			inspect(b, off, len);
+		}
+
 		// 检测缓存流是否达到了最大值
 		if (cachedBufferSize == maxCacheSize) {
 			completed();
@@ -94,6 +204,30 @@ public class RASPOutputStreamCache extends OutputStream {
 		completed();
 	}
 
+	/**
+	 * 释放缓存数据，将缓存分片归还到分片池，释放后不能再读取缓存输入流
+	 */
+	public void release() {
+		cachedStream.close();
+	}
+
+	/**
+	 * 增量检测新写入的数据，检测到攻击后不再检测后续数据，也不再调用completed检测完整的请求体
+	 */
+	private void inspect(byte[] b, int off, int len) throws IOException {
+		HookResult<?> result = scanner.update(b, off, len);
+
+		if (result != null && result.getRASPHookResultType() == THROW) {
+			scanner = null;
+			deserialized = true;
+
+			// 非静默模式需要抛出异常阻断程序逻辑
+			if (!context.isSilent()) {
+				throw new IOException(result.getException().getMessage());
+			}
+		}
+	}
+
 	public void completed() throws IOException {
 		// 检测是否设置了反序列化实现类，是否已反序列化，非API请求不需要反序列化
 		if (serialization == null || deserialized || !context.isWebApiRequest()) {
@@ -103,7 +237,9 @@ public class RASPOutputStreamCache extends OutputStream {
 		// 修改序列化状态为true
 		deserialized = true;
 
-		HookResult<?> result = serialization.deserialization(context, getInputStream());
+		// 增量检测时只需要通知检测对象请求体已写入完成
+		HookResult<?> result = scanner != null ?
+				scanner.finish() : serialization.deserialization(context, getInputStream());
 
 		// 检测到有攻击且非静默模式需要抛出异常阻断程序逻辑
 		if (result != null && result.getRASPHookResultType() == THROW && !context.isSilent()) {
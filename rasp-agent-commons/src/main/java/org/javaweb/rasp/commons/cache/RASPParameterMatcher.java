@@ -0,0 +1,68 @@
+package org.javaweb.rasp.commons.cache;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RASP请求参数值匹配器，基于RASPParameterSet中增量维护的参数值Hash索引，
+ * 检测字符串是否和任意一个请求参数值完全一致时只需要计算一次Hash，不再遍历所有的参数和参数值
+ */
+public class RASPParameterMatcher {
+
+	/**
+	 * 参数值和参数对象的映射关系，同一个参数值出现在多个参数中时按缓存顺序存储
+	 */
+	private final Map<String, List<RASPCachedParameter>> valueIndex;
+
+	RASPParameterMatcher(Map<String, List<RASPCachedParameter>> valueIndex) {
+		this.valueIndex = valueIndex;
+	}
+
+	/**
+	 * 查找参数值和传入字符串完全一致的请求参数
+	 *
+	 * @param value 需要检测的字符串
+	 * @return 第一个缓存的匹配参数，未匹配到返回null
+	 */
+	public RASPCachedParameter match(String value) {
+		if (value == null || valueIndex.isEmpty()) {
+			return null;
+		}
+
+		List<RASPCachedParameter> list = valueIndex.get(value);
+
+		return list != null && !list.isEmpty() ? list.get(0) : null;
+	}
+
+	/**
+	 * 查找参数值和传入的任意一个字符串完全一致的请求参数，检测成本只和传入的字符串总长度有关，和请求参数个数无关
+	 *
+	 * @param values 需要检测的字符串数组，如：系统命令数组
+	 * @return 第一个匹配到的请求参数，未匹配到返回null
+	 */
+	public RASPCachedParameter match(String[] values) {
+		if (values == null || valueIndex.isEmpty()) {
+			return null;
+		}
+
+		for (String value : values) {
+			RASPCachedParameter parameter = match(value);
+
+			if (parameter != null) {
+				return parameter;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * 是否不包含任何参数值
+	 *
+	 * @return 是否为空
+	 */
+	public boolean isEmpty() {
+		return valueIndex.isEmpty();
+	}
+
+}
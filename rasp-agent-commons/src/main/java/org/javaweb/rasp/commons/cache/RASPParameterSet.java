@@ -1,12 +1,12 @@
 package org.javaweb.rasp.commons.cache;
 
 import org.javaweb.rasp.commons.RASPParameterFilter;
+import org.javaweb.rasp.commons.attack.RASPParameterPosition;
 import org.javaweb.rasp.commons.context.RASPHttpRequestContext;
 
 import java.rasp.proxy.loader.HookResult;
 
-import java.util.HashSet;
-import java.util.List;
+import java.util.*;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import static org.javaweb.rasp.commons.config.RASPConfiguration.AGENT_LOGGER;
@@ -17,9 +17,25 @@ import static java.rasp.proxy.loader.HookResultType.RETURN;
 public class RASPParameterSet<E> extends HashSet<E> {
 
 	/**
-	 * RASP上下文
+	 * RASP上下文，复用模式下请求结束后会被重新绑定
 	 */
-	private final RASPHttpRequestContext context;
+	private RASPHttpRequestContext context;
+
+	/**
+	 * 参数值索引，缓存参数时同步更新，用于O(1)查询某个字符串是否是客户端传入的参数值
+	 */
+	private final Map<String, List<RASPCachedParameter>> valueIndex = new HashMap<String, List<RASPCachedParameter>>();
+
+	/**
+	 * 参数位置索引，缓存参数时同步更新
+	 */
+	private final Map<RASPParameterPosition, List<RASPCachedParameter>> positionIndex =
+			new EnumMap<RASPParameterPosition, List<RASPCachedParameter>>(RASPParameterPosition.class);
+
+	/**
+	 * 参数值匹配器，直接使用参数值索引，不需要重新编译
+	 */
+	private final RASPParameterMatcher parameterMatcher = new RASPParameterMatcher(valueIndex);
 
 	private static final List<RASPParameterFilter> PARAMETER_FILTER = new CopyOnWriteArrayList<RASPParameterFilter>();
 
@@ -27,6 +43,10 @@ public class RASPParameterSet<E> extends HashSet<E> {
 		this.context = context;
 	}
 
+	void setContext(RASPHttpRequestContext context) {
+		this.context = context;
+	}
+
 	public static void addParameterFilter(String className) {
 		try {
 			Class<?> clazz = Class.forName(className);
@@ -44,13 +64,11 @@ public class RASPParameterSet<E> extends HashSet<E> {
 	}
 
 	public HookResult<String[]> cacheParameter(RASPCachedParameter parameter) {
-		if (contains(parameter)) {
+		// 缓存请求参数，同时更新参数索引，参数已缓存时不需要重复检测
+		if (!add((E) parameter)) {
 			return DEFAULT_STRING_ARRAY_RESULT;
 		}
 
-		// 缓存请求参数
-		add((E) parameter);
-
 		// 检测参数合法性
 		for (RASPParameterFilter filter : PARAMETER_FILTER) {
 			HookResult<String[]> result = filter.filter(parameter, context);
@@ -64,4 +82,166 @@ public class RASPParameterSet<E> extends HashSet<E> {
 		return DEFAULT_STRING_ARRAY_RESULT;
 	}
 
+	/**
+	 * 获取当前请求的参数值匹配器
+	 *
+	 * @return 参数值匹配器
+	 */
+	public RASPParameterMatcher getParameterMatcher() {
+		return parameterMatcher;
+	}
+
+	/**
+	 * 检测传入的字符串是否和任意一个客户端请求参数值完全一致
+	 *
+	 * @param value 需要检测的字符串
+	 * @return 是否是客户端传入的参数值
+	 */
+	public boolean containsParameterValue(String value) {
+		return value != null && valueIndex.containsKey(value);
+	}
+
+	/**
+	 * 获取参数值和传入字符串完全一致的第一个请求参数，可通过返回的参数获取参数名和参数位置
+	 *
+	 * @param value 参数值
+	 * @return 请求参数，不存在时返回null
+	 */
+	public RASPCachedParameter getParameterByValue(String value) {
+		return parameterMatcher.match(value);
+	}
+
+	/**
+	 * 获取参数值和传入字符串完全一致的所有请求参数，切勿修改返回的集合，因为该集合是索引本身
+	 *
+	 * @param value 参数值
+	 * @return 请求参数集合，不存在时返回空集合
+	 */
+	public List<RASPCachedParameter> getParametersByValue(String value) {
+		List<RASPCachedParameter> list = value != null ? valueIndex.get(value) : null;
+
+		return list != null ? list : Collections.<RASPCachedParameter>emptyList();
+	}
+
+	/**
+	 * 获取出现在指定位置的所有请求参数，切勿修改返回的集合，因为该集合是索引本身
+	 *
+	 * @param position 参数位置，如：HEADER、COOKIE
+	 * @return 请求参数集合，不存在时返回空集合
+	 */
+	public List<RASPCachedParameter> getParameters(RASPParameterPosition position) {
+		List<RASPCachedParameter> list = position != null ? positionIndex.get(position) : null;
+
+		return list != null ? list : Collections.<RASPCachedParameter>emptyList();
+	}
+
+	@Override
+	public boolean add(E e) {
+		boolean added = super.add(e);
+
+		if (added && e instanceof RASPCachedParameter) {
+			RASPCachedParameter parameter = (RASPCachedParameter) e;
+
+			for (String value : parameter.getValue()) {
+				// 忽略空的参数值
+				if (value != null && value.length() > 0) {
+					addIndex(valueIndex, value, parameter);
+				}
+			}
+
+			if (parameter.getRaspAttackPosition() != null) {
+				addIndex(positionIndex, parameter.getRaspAttackPosition(), parameter);
+			}
+		}
+
+		return added;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		boolean removed = super.remove(o);
+
+		if (removed) {
+			removeIndexes(o);
+		}
+
+		return removed;
+	}
+
+	/**
+	 * 返回的迭代器在remove时同步更新参数索引，removeAll和retainAll也会通过迭代器删除元素
+	 */
+	@Override
+	public Iterator<E> iterator() {
+		final Iterator<E> iterator = super.iterator();
+
+		return new Iterator<E>() {
+
+			private E current;
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public E next() {
+				return current = iterator.next();
+			}
+
+			@Override
+			public void remove() {
+				iterator.remove();
+				removeIndexes(current);
+			}
+
+		};
+	}
+
+	private void removeIndexes(Object o) {
+		if (o instanceof RASPCachedParameter) {
+			RASPCachedParameter parameter = (RASPCachedParameter) o;
+
+			for (String value : parameter.getValue()) {
+				removeIndex(valueIndex, value, parameter);
+			}
+
+			removeIndex(positionIndex, parameter.getRaspAttackPosition(), parameter);
+		}
+	}
+
+	@Override
+	public void clear() {
+		super.clear();
+		valueIndex.clear();
+		positionIndex.clear();
+	}
+
+	private static <K> void addIndex(Map<K, List<RASPCachedParameter>> index, K key, RASPCachedParameter parameter) {
+		List<RASPCachedParameter> list = index.get(key);
+
+		if (list == null) {
+			list = new ArrayList<RASPCachedParameter>(1);
+			index.put(key, list);
+		}
+
+		if (!list.contains(parameter)) {
+			list.add(parameter);
+		}
+	}
+
+	private static <K> void removeIndex(Map<K, List<RASPCachedParameter>> index, K key, RASPCachedParameter parameter) {
+		if (key == null) return;
+
+		List<RASPCachedParameter> list = index.get(key);
+
+		if (list != null) {
+			list.remove(parameter);
+
+			if (list.isEmpty()) {
+				index.remove(key);
+			}
+		}
+	}
+
 }
@@ -0,0 +1,110 @@
+package org.javaweb.rasp.commons.cache;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * 非同步的RASPByteArrayInputStream，缓存的请求体只会在当前请求线程中读取，不需要每次读取都获取对象锁。
+ * <p>
+ * 参数检查和读取逻辑和RASPByteArrayInputStream一致，只是去掉了synchronized，
+ * RASPSerialization实现类可以使用read(ByteBuffer)、transferTo和asByteBuffer批量读取数据。
+ * 非线程安全，只能在单个请求线程中使用。
+ */
+public class RASPUnsyncByteArrayInputStream extends RASPByteArrayInputStream {
+
+	public RASPUnsyncByteArrayInputStream(byte[] buf) {
+		super(buf);
+	}
+
+	public RASPUnsyncByteArrayInputStream(byte[] buf, int offset, int length) {
+		super(buf, offset, length);
+	}
+
+	@Override
+	public int read() {
+		return (pos < count) ? (buf[pos++] & 0xff) : -1;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) {
+		if (b == null) {
+			throw new NullPointerException();
+		} else if (off < 0 || len < 0 || len > b.length - off) {
+			throw new IndexOutOfBoundsException();
+		}
+
+		if (pos >= count) {
+			return -1;
+		}
+
+		int avail = count - pos;
+
+		if (len > avail) {
+			len = avail;
+		}
+
+		if (len <= 0) {
+			return 0;
+		}
+
+		System.arraycopy(buf, pos, b, off, len);
+		pos += len;
+
+		return len;
+	}
+
+	@Override
+	public long skip(long n) {
+		long k = count - pos;
+
+		if (n < k) {
+			k = n < 0 ? 0 : n;
+		}
+
+		pos += (int) k;
+		return k;
+	}
+
+	@Override
+	public int available() {
+		return count - pos;
+	}
+
+	@Override
+	public void reset() {
+		pos = mark;
+	}
+
+	@Override
+	public int read(ByteBuffer dst) {
+		if (pos >= count) {
+			return -1;
+		}
+
+		int len = Math.min(dst.remaining(), count - pos);
+
+		dst.put(buf, pos, len);
+		pos += len;
+
+		return len;
+	}
+
+	@Override
+	public long transferTo(OutputStream out) throws IOException {
+		int len = Math.max(0, count - pos);
+
+		out.write(buf, pos, len);
+		pos += len;
+
+		return len;
+	}
+
+	@Override
+	public ByteBuffer asByteBuffer() {
+		int len = Math.max(0, count - pos);
+
+		return ByteBuffer.wrap(buf, pos, len).slice().asReadOnlyBuffer();
+	}
+
+}
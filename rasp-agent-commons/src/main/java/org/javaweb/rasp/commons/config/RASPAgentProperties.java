@@ -1,6 +1,8 @@
 package org.javaweb.rasp.commons.config;
 
 import ch.qos.logback.core.util.FileSize;
+import org.javaweb.rasp.commons.cache.RASPIntHashSet;
+import org.javaweb.rasp.commons.log.RASPLogOverflowPolicy;
 
 import java.util.concurrent.TimeUnit;
 
@@ -30,6 +32,10 @@ public class RASPAgentProperties extends RASPProperties {
 
 	private int syncInterval;
 
+	private int syncPoolSize;
+
+	private int syncTimeout;
+
 	private int flushInterval;
 
 	private String proxyIpHeader;
@@ -40,8 +46,65 @@ public class RASPAgentProperties extends RASPProperties {
 
 	private String logBufferSize;
 
+	private boolean contextRecycle;
+
+	private int sqlCacheInitialSize;
+
+	private int sqlCacheMaxSize;
+
+	private int logQueueSize;
+
+	private RASPLogOverflowPolicy logOverflowPolicy;
+
+	private int logSampleRate;
+
+	private boolean logGroupCommit;
+
+	private boolean logFlushOnShutdown;
+
+	private int logGroupCommitWindow;
+
+	private String logGroupCommitSize;
+
+	private boolean logMapped;
+
+	private boolean logBinary;
+
+	private String logBinaryBlockSize;
+
+	private boolean servletStreamSpill;
+
+	private long servletStreamHeapSize;
+
+	private long servletStreamMemoryBudget;
+
 	private static final String DEFAULT_BUFFER_SIZE = "10MB";
 
+	/**
+	 * 默认日志队列大小
+	 */
+	private static final int DEFAULT_LOG_QUEUE_SIZE = 1024;
+
+	/**
+	 * 默认group commit缓存大小
+	 */
+	private static final String DEFAULT_GROUP_COMMIT_SIZE = "64KB";
+
+	/**
+	 * 默认二进制日志块大小
+	 */
+	private static final String DEFAULT_BINARY_BLOCK_SIZE = "64KB";
+
+	/**
+	 * 默认单个请求堆内缓存的Servlet输入输出流大小
+	 */
+	private static final String DEFAULT_STREAM_HEAP_SIZE = "256KB";
+
+	/**
+	 * 默认Servlet输入输出流直接内存缓存大小
+	 */
+	private static final String DEFAULT_STREAM_MEMORY_BUDGET = "64MB";
+
 	/**
 	 * 最大间隔时间：1天
 	 */
@@ -72,6 +135,17 @@ public class RASPAgentProperties extends RASPProperties {
 			syncInterval = 30;
 		}
 
+		this.syncPoolSize = configMap.getInt(SYNC_POOL_SIZE, 2);
+		this.syncTimeout = configMap.getInt(SYNC_TIMEOUT, 300);
+
+		if (syncPoolSize < 1) {
+			syncPoolSize = 2;
+		}
+
+		if (syncTimeout < 1) {
+			syncTimeout = 300;
+		}
+
 		// 设置日志刷新时间间隔范围
 		if (flushInterval < 1 || flushInterval > MAX_TIME_INTERVAL) {
 			flushInterval = 3;
@@ -81,6 +155,35 @@ public class RASPAgentProperties extends RASPProperties {
 		this.logLevel = configMap.getString(LOG_LEVEL);
 		this.version = configMap.getString(VERSION);
 		this.logBufferSize = configMap.getString(LOG_BUFFER_SIZE, DEFAULT_BUFFER_SIZE);
+		this.contextRecycle = configMap.getBoolean(CONTEXT_RECYCLE, false);
+		this.sqlCacheInitialSize = configMap.getInt(SQL_CACHE_INITIAL_SIZE, RASPIntHashSet.DEFAULT_INITIAL_SIZE);
+		this.sqlCacheMaxSize = configMap.getInt(SQL_CACHE_MAX_SIZE, RASPIntHashSet.DEFAULT_MAX_SIZE);
+		this.logQueueSize = configMap.getInt(LOG_QUEUE_SIZE, DEFAULT_LOG_QUEUE_SIZE);
+		this.logSampleRate = configMap.getInt(LOG_SAMPLE_RATE, 10);
+
+		this.logOverflowPolicy = RASPLogOverflowPolicy.getPolicy(
+				configMap.getString(LOG_OVERFLOW_POLICY), RASPLogOverflowPolicy.DROP_OLDEST
+		);
+
+		if (logQueueSize < 1) {
+			logQueueSize = DEFAULT_LOG_QUEUE_SIZE;
+		}
+
+		if (logSampleRate < 1) {
+			logSampleRate = 1;
+		}
+
+		this.logGroupCommit = configMap.getBoolean(LOG_GROUP_COMMIT, false);
+		this.logFlushOnShutdown = configMap.getBoolean(LOG_FLUSH_ON_SHUTDOWN, true);
+		this.logGroupCommitWindow = configMap.getInt(LOG_GROUP_COMMIT_WINDOW, 1000);
+		this.logGroupCommitSize = configMap.getString(LOG_GROUP_COMMIT_SIZE, DEFAULT_GROUP_COMMIT_SIZE);
+		this.logMapped = configMap.getBoolean(LOG_MAPPED, false);
+		this.logBinary = configMap.getBoolean(LOG_BINARY, false);
+		this.logBinaryBlockSize = configMap.getString(LOG_BINARY_BLOCK_SIZE, DEFAULT_BINARY_BLOCK_SIZE);
+
+		if (logGroupCommitWindow < 1) {
+			logGroupCommitWindow = 1000;
+		}
 
 		try {
 			// 检测缓存日志大小设置是否正确
@@ -88,6 +191,49 @@ public class RASPAgentProperties extends RASPProperties {
 		} catch (IllegalArgumentException e) {
 			this.logBufferSize = DEFAULT_BUFFER_SIZE;
 		}
+
+		try {
+			FileSize.valueOf(logGroupCommitSize);
+		} catch (IllegalArgumentException e) {
+			this.logGroupCommitSize = DEFAULT_GROUP_COMMIT_SIZE;
+		}
+
+		try {
+			long blockSize = FileSize.valueOf(logBinaryBlockSize).getSize();
+
+			if (blockSize < 1 || blockSize > Integer.MAX_VALUE) {
+				this.logBinaryBlockSize = DEFAULT_BINARY_BLOCK_SIZE;
+			}
+		} catch (IllegalArgumentException e) {
+			this.logBinaryBlockSize = DEFAULT_BINARY_BLOCK_SIZE;
+		}
+
+		this.servletStreamSpill = configMap.getBoolean(SERVLET_STREAM_SPILL, false);
+
+		this.servletStreamHeapSize = getFileSize(
+				configMap.getString(SERVLET_STREAM_HEAP_SIZE, DEFAULT_STREAM_HEAP_SIZE), DEFAULT_STREAM_HEAP_SIZE
+		);
+
+		this.servletStreamMemoryBudget = getFileSize(
+				configMap.getString(SERVLET_STREAM_MEMORY_BUDGET, DEFAULT_STREAM_MEMORY_BUDGET),
+				DEFAULT_STREAM_MEMORY_BUDGET
+		);
+	}
+
+	/**
+	 * 解析文件大小配置，如：64KB，配置错误时使用默认值
+	 */
+	private static long getFileSize(String value, String defaultValue) {
+		try {
+			long size = FileSize.valueOf(value).getSize();
+
+			if (size >= 0) {
+				return size;
+			}
+		} catch (IllegalArgumentException ignored) {
+		}
+
+		return FileSize.valueOf(defaultValue).getSize();
 	}
 
 	public String getLogVersion() {
@@ -130,6 +276,14 @@ public class RASPAgentProperties extends RASPProperties {
 		return syncInterval;
 	}
 
+	public int getSyncPoolSize() {
+		return syncPoolSize;
+	}
+
+	public int getSyncTimeout() {
+		return syncTimeout;
+	}
+
 	public int getFlushInterval() {
 		return flushInterval;
 	}
@@ -150,4 +304,68 @@ public class RASPAgentProperties extends RASPProperties {
 		return logBufferSize;
 	}
 
+	public boolean isContextRecycle() {
+		return contextRecycle;
+	}
+
+	public int getSqlCacheInitialSize() {
+		return sqlCacheInitialSize;
+	}
+
+	public int getSqlCacheMaxSize() {
+		return sqlCacheMaxSize;
+	}
+
+	public int getLogQueueSize() {
+		return logQueueSize;
+	}
+
+	public RASPLogOverflowPolicy getLogOverflowPolicy() {
+		return logOverflowPolicy;
+	}
+
+	public int getLogSampleRate() {
+		return logSampleRate;
+	}
+
+	public boolean isLogGroupCommit() {
+		return logGroupCommit;
+	}
+
+	public boolean isLogFlushOnShutdown() {
+		return logFlushOnShutdown;
+	}
+
+	public int getLogGroupCommitWindow() {
+		return logGroupCommitWindow;
+	}
+
+	public String getLogGroupCommitSize() {
+		return logGroupCommitSize;
+	}
+
+	public boolean isLogMapped() {
+		return logMapped;
+	}
+
+	public boolean isLogBinary() {
+		return logBinary;
+	}
+
+	public String getLogBinaryBlockSize() {
+		return logBinaryBlockSize;
+	}
+
+	public boolean isServletStreamSpill() {
+		return servletStreamSpill;
+	}
+
+	public long getServletStreamHeapSize() {
+		return servletStreamHeapSize;
+	}
+
+	public long getServletStreamMemoryBudget() {
+		return servletStreamMemoryBudget;
+	}
+
 }
\ No newline at end of file
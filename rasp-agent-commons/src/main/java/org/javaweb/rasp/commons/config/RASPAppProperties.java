@@ -1,5 +1,11 @@
 package org.javaweb.rasp.commons.config;
 
+import org.javaweb.rasp.commons.log.RASPLogSampler;
+import org.javaweb.rasp.commons.log.RASPLogSamplingPolicy;
+import org.javaweb.rasp.commons.utils.AntPathPatternSet;
+import org.javaweb.rasp.commons.utils.IPPrefixTree;
+
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -62,6 +68,26 @@ public class RASPAppProperties extends RASPProperties {
 	 */
 	private int servletStreamMaxCacheSize;
 
+	/**
+	 * 编译后的URL白名单和黑名单，重新加载配置时整体替换，请求线程不会读取到只更新了一半的规则
+	 */
+	private volatile URLRules urlRules = new URLRules(new String[0], new String[0]);
+
+	/**
+	 * 编译后的IP黑名单，重新加载配置时整体替换
+	 */
+	private volatile IPPrefixTree ipBlacklistTree = new IPPrefixTree(new String[0]);
+
+	/**
+	 * 访问日志采样策略
+	 */
+	private RASPLogSamplingPolicy accessLogSampling;
+
+	/**
+	 * 访问日志采样器，重新加载配置时整体替换
+	 */
+	private volatile RASPLogSampler accessLogSampler = RASPLogSampler.ALWAYS;
+
 	public void reloadConfig(RASPConfigMap<String, Object> configMap) {
 		super.reloadConfig(configMap);
 
@@ -109,8 +135,81 @@ public class RASPAppProperties extends RASPProperties {
 			urlBlacklist[i] = appendFirstSlash(urlNormalize(urlBlacklist[i]));
 		}
 
+		// 编译URL白名单和黑名单
+		this.urlRules = new URLRules(whitelist, urlBlacklist);
+
+		// 编译IP黑名单
+		this.ipBlacklistTree = new IPPrefixTree(ipBlacklist);
+
 		this.servletStreamHook = configMap.getBoolean(SERVLET_STREAM_HOOK, false);
 		this.servletStreamMaxCacheSize = configMap.getInt(SERVLET_STREAM_MAX_CACHE_SIZE);
+
+		this.accessLogSampling = RASPLogSamplingPolicy.getPolicy(
+				configMap.getString(ACCESS_LOG_SAMPLING), RASPLogSamplingPolicy.NONE
+		);
+
+		this.accessLogSampler = RASPLogSampler.create(
+				accessLogSampling, getSampleRate(configMap.getString(ACCESS_LOG_SAMPLE_RATE)),
+				Math.max(1, configMap.getInt(ACCESS_LOG_SAMPLE_LIMIT, 100)),
+				Math.max(1, configMap.getInt(ACCESS_LOG_SAMPLE_WINDOW, 10))
+		);
+	}
+
+	private static double getSampleRate(String value) {
+		if (value != null) {
+			try {
+				double rate = Double.parseDouble(value.trim());
+
+				if (rate > 0 && rate <= 1) {
+					return rate;
+				}
+			} catch (NumberFormatException ignored) {
+			}
+		}
+
+		return 1;
+	}
+
+	/**
+	 * 判断当前请求是否需要记录访问日志，产生了攻击日志的请求总是记录且不消耗采样配额，
+	 * 每个请求只能调用一次
+	 *
+	 * @param attacked 请求是否产生了攻击日志
+	 * @return 是否记录访问日志
+	 */
+	public boolean isAccessLogSampled(boolean attacked) {
+		return attacked || accessLogSampler.sample();
+	}
+
+	/**
+	 * 检测请求URI是否在白名单中，支持完全匹配、前缀匹配（如：/api/**）和Ant通配符匹配（如：/static/*.js），
+	 * 匹配时间复杂度和URI的目录层级相关，和白名单条数无关
+	 *
+	 * @param uri 标准化后的请求URI（urlNormalize处理后以"/"开头）
+	 * @return 是否在白名单中
+	 */
+	public boolean isWhitelistURI(String uri) {
+		return urlRules.whitelist.match(uri);
+	}
+
+	/**
+	 * 检测请求URI是否在URL黑名单中，规则和白名单一致
+	 *
+	 * @param uri 标准化后的请求URI（urlNormalize处理后以"/"开头）
+	 * @return 是否在黑名单中
+	 */
+	public boolean isBlacklistURI(String uri) {
+		return urlRules.blacklist.match(uri);
+	}
+
+	/**
+	 * 检测IP地址是否在IP黑名单中，IP黑名单支持IPv4/IPv6地址和CIDR网段（如：10.0.0.0/8）
+	 *
+	 * @param ip 客户端IP地址
+	 * @return 是否在黑名单中
+	 */
+	public boolean isBlacklistIP(String ip) {
+		return ipBlacklistTree.contains(ip);
 	}
 
 	public String getAppID() {
@@ -153,4 +252,24 @@ public class RASPAppProperties extends RASPProperties {
 		return servletStreamMaxCacheSize;
 	}
 
+	public RASPLogSamplingPolicy getAccessLogSampling() {
+		return accessLogSampling;
+	}
+
+	/**
+	 * URL白名单和黑名单字典树，URL路径分隔符固定为"/"
+	 */
+	private static class URLRules {
+
+		private final AntPathPatternSet whitelist;
+
+		private final AntPathPatternSet blacklist;
+
+		URLRules(String[] whitelist, String[] blacklist) {
+			this.whitelist = new AntPathPatternSet(Arrays.asList(whitelist), "/");
+			this.blacklist = new AntPathPatternSet(Arrays.asList(blacklist), "/");
+		}
+
+	}
+
 }
@@ -1,6 +1,7 @@
 package org.javaweb.rasp.commons.config;
 
 import ch.qos.logback.classic.Level;
+import org.javaweb.rasp.commons.cache.RASPChunkedOutputStream;
 import org.javaweb.rasp.commons.context.RASPHttpRequestContext;
 import org.slf4j.Logger;
 
@@ -44,6 +45,9 @@ public class RASPConfiguration {
 	// RASP 数据目录
 	public static final File RASP_DATABASE_DIRECTORY = getDirectory(new File(RASP_DIRECTORY, "database"));
 
+	// RASP 临时文件目录（如：请求体缓存超过内存预算时写入的临时文件）
+	public static final File RASP_TMP_DIRECTORY = getDirectory(new File(RASP_DIRECTORY, "tmp"));
+
 	// RASP Agent日志文件
 	public static final File RASP_AGENT_FILE = new File(RASP_DATABASE_DIRECTORY, AGENT_LOG_FILE_NAME);
 
@@ -115,6 +119,9 @@ public class RASPConfiguration {
 
 		// 创建防御模块Logger
 		MODULES_LOGGER = createRASPLogger("modules", RASP_MODULES_FILE, logLevel);
+
+		// 清除上次进程异常退出时未删除的请求体缓存临时文件
+		RASPChunkedOutputStream.deleteSpillFiles(RASP_TMP_DIRECTORY);
 	}
 
 	/**
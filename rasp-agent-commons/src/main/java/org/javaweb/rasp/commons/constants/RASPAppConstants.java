@@ -52,4 +52,25 @@ public class RASPAppConstants {
 	 */
 	public static final String SERVLET_STREAM_MAX_CACHE_SIZE = "servlet_stream_max_cache_size";
 
+	/**
+	 * 访问日志采样策略：none（不采样）、rate（固定比例）、token_bucket（令牌桶）、reservoir（蓄水池），
+	 * 产生了攻击日志的请求总是记录访问日志
+	 */
+	public static final String ACCESS_LOG_SAMPLING = "access_log_sampling";
+
+	/**
+	 * 访问日志固定比例采样的采样率，取值范围：(0, 1]，默认1.0
+	 */
+	public static final String ACCESS_LOG_SAMPLE_RATE = "access_log_sample_rate";
+
+	/**
+	 * 令牌桶每秒或蓄水池每个采样周期保留的访问日志数，默认100
+	 */
+	public static final String ACCESS_LOG_SAMPLE_LIMIT = "access_log_sample_limit";
+
+	/**
+	 * 蓄水池采样周期（秒），默认10
+	 */
+	public static final String ACCESS_LOG_SAMPLE_WINDOW = "access_log_sample_window";
+
 }
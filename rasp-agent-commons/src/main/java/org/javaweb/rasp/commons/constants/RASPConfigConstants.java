@@ -55,6 +55,16 @@ public class RASPConfigConstants {
 	 */
 	public static final String SYNC_INTERVAL = "sync.interval";
 
+	/**
+	 * 云端同步线程数，修改后需要重启生效
+	 */
+	public static final String SYNC_POOL_SIZE = "sync_pool_size";
+
+	/**
+	 * 单次云端同步最长执行时间（秒）
+	 */
+	public static final String SYNC_TIMEOUT = "sync_timeout";
+
 	/**
 	 * 设置日志刷新间隔时间（秒）
 	 */
@@ -80,4 +90,86 @@ public class RASPConfigConstants {
 	 */
 	public static final String LOG_BUFFER_SIZE = "log_buffer_size";
 
+	/**
+	 * 是否复用请求缓存对象（RASPCachedRequest）
+	 */
+	public static final String CONTEXT_RECYCLE = "context_recycle";
+
+	/**
+	 * 单个请求缓存的SQL语句hashcode初始容量
+	 */
+	public static final String SQL_CACHE_INITIAL_SIZE = "sql_cache_initial_size";
+
+	/**
+	 * 单个请求最多缓存的SQL语句hashcode个数，超过后淘汰最早缓存的SQL
+	 */
+	public static final String SQL_CACHE_MAX_SIZE = "sql_cache_max_size";
+
+	/**
+	 * RASP日志队列大小
+	 */
+	public static final String LOG_QUEUE_SIZE = "log_queue_size";
+
+	/**
+	 * RASP日志队列已满时访问日志和调用链日志的处理策略：drop_oldest、drop_new、sample，
+	 * 攻击日志不会被丢弃，队列已满时在请求线程中同步写入
+	 */
+	public static final String LOG_OVERFLOW_POLICY = "log_overflow_policy";
+
+	/**
+	 * RASP日志队列溢出策略为sample时的采样率，每N条溢出的日志保留1条
+	 */
+	public static final String LOG_SAMPLE_RATE = "log_sample_rate";
+
+	/**
+	 * 访问日志和调用链日志是否启用group commit（合并flush），攻击日志始终立即flush
+	 */
+	public static final String LOG_GROUP_COMMIT = "log_group_commit";
+
+	/**
+	 * group commit最长缓存时间（毫秒）
+	 */
+	public static final String LOG_GROUP_COMMIT_WINDOW = "log_group_commit_window";
+
+	/**
+	 * group commit最多缓存的日志大小，如：64KB
+	 */
+	public static final String LOG_GROUP_COMMIT_SIZE = "log_group_commit_size";
+
+	/**
+	 * JVM退出时是否停止日志线程、写入队列中剩余的日志并强制flush所有缓存的日志
+	 */
+	public static final String LOG_FLUSH_ON_SHUTDOWN = "log_flush_on_shutdown";
+
+	/**
+	 * 访问日志、攻击日志和调用链日志是否使用内存映射文件写入
+	 */
+	public static final String LOG_MAPPED = "log_mapped";
+
+	/**
+	 * 访问日志、攻击日志和调用链日志是否使用二进制块格式（带长度前缀、按块压缩）
+	 */
+	public static final String LOG_BINARY = "log_binary";
+
+	/**
+	 * 二进制日志块大小（压缩前），如：64KB
+	 */
+	public static final String LOG_BINARY_BLOCK_SIZE = "log_binary_block_size";
+
+	/**
+	 * 是否开启Servlet输入输出流分级缓存：超过servlet_stream_heap_size的部分使用直接内存缓存，
+	 * 所有请求的直接内存缓存超过servlet_stream_memory_budget后写入临时文件
+	 */
+	public static final String SERVLET_STREAM_SPILL = "servlet_stream_spill";
+
+	/**
+	 * 开启分级缓存后单个请求在堆内缓存的Servlet输入输出流大小，如：256KB
+	 */
+	public static final String SERVLET_STREAM_HEAP_SIZE = "servlet_stream_heap_size";
+
+	/**
+	 * 开启分级缓存后所有请求共享的直接内存缓存大小，如：64MB
+	 */
+	public static final String SERVLET_STREAM_MEMORY_BUDGET = "servlet_stream_memory_budget";
+
 }
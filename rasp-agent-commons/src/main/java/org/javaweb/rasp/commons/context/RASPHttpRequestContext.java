@@ -21,6 +21,7 @@ import static org.javaweb.rasp.commons.config.RASPConfiguration.getWebApplicatio
 import static org.javaweb.rasp.commons.utils.HttpServletRequestUtils.getDocumentRootFile;
 import static org.javaweb.rasp.commons.utils.HttpServletRequestUtils.getRemoteAddr;
 import static org.javaweb.rasp.commons.utils.URLUtils.getStandardContextPath;
+import static org.javaweb.rasp.loader.AgentConstants.AGENT_NAME;
 
 /**
  * HttpRequest上下文
@@ -142,7 +143,7 @@ public abstract class RASPHttpRequestContext implements Closeable {
 		this.servletResponse = response;
 		this.requestStartNanoTime = nanoTime();
 		this.cacheClass = event.getThisObject();
-		this.cachedRequest = new RASPCachedRequest(this);
+		this.cachedRequest = RASPCachedRequest.obtain(this);
 		this.adapterClassLoader = adapterClassLoader;
 		this.servletPath = request.getServletPath();
 		this.requestURI = request.getRequestURI();
@@ -203,6 +204,16 @@ public abstract class RASPHttpRequestContext implements Closeable {
 		return raspAttackInfoList;
 	}
 
+	/**
+	 * 判断当前请求是否需要记录访问日志，请求结束写访问日志前调用，每个请求只能调用一次。
+	 * 产生了攻击日志的请求总是记录，其他请求按应用配置的访问日志采样策略记录
+	 *
+	 * @return 是否记录访问日志
+	 */
+	public boolean isAccessLogSampled() {
+		return appProperties.isAccessLogSampled(!raspAttackInfoList.isEmpty());
+	}
+
 	/**
 	 * 添加攻击信息
 	 *
@@ -242,6 +253,11 @@ public abstract class RASPHttpRequestContext implements Closeable {
 	 * @return 缓存请求对象
 	 */
 	public RASPCachedRequest getCachedRequest() {
+		// 开启复用模式后请求结束时缓存对象会被回收并绑定到新的请求，禁止在context关闭后继续使用
+		if (cachedRequest.getContext() != this) {
+			throw new IllegalStateException(AGENT_NAME + "RASP上下文已关闭，请求路径：" + servletPath);
+		}
+
 		return cachedRequest;
 	}
 
@@ -292,6 +308,15 @@ public abstract class RASPHttpRequestContext implements Closeable {
 		return requestIP;
 	}
 
+	/**
+	 * 检测客户端IP地址是否在应用的IP黑名单中
+	 *
+	 * @return 是否在IP黑名单中
+	 */
+	public boolean isBlacklistIP() {
+		return appProperties.isBlacklistIP(requestIP);
+	}
+
 	/**
 	 * 获取User-Agent
 	 *
@@ -451,8 +476,10 @@ public abstract class RASPHttpRequestContext implements Closeable {
 	public abstract boolean isDeserialization();
 
 	public void close() throws IOException {
-		// 清除请求缓存数据
-		cachedRequest.close();
+		// 清除请求缓存数据，开启复用模式时缓存对象会被当前线程回收，重复关闭时不能清除已绑定到其他请求的数据
+		if (cachedRequest.getContext() == this) {
+			cachedRequest.close();
+		}
 	}
 
 }
@@ -0,0 +1,359 @@
+package org.javaweb.rasp.commons.log;
+
+import org.javaweb.rasp.commons.utils.EncryptUtils;
+import org.javaweb.rasp.commons.utils.IOUtils;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static org.javaweb.rasp.commons.constants.RASPConstants.DEFAULT_ENCODING;
+import static org.javaweb.rasp.commons.log.RASPBinaryLogWriter.*;
+
+/**
+ * RASP二进制日志读取工具，按块读取RASPBinaryLogWriter生成的日志文件，块格式见RASPBinaryLogWriter。
+ * <p>
+ * nextBlock只读取块头并跳过块内容，需要日志内容时再调用readRecords解压。文件末尾不完整的块（如：进程异常退出时
+ * 未写完的块）和内存映射文件预分配的0会被忽略。也可以直接运行将二进制日志转换为每行一条的文本日志：
+ * <pre>
+ * java -cp rasp-agent-commons.jar org.javaweb.rasp.commons.log.RASPBinaryLogReader 二进制日志 输出文件 [rc4Key]
+ * </pre>
+ * 传入rc4Key时会解密日志，输出明文JSON。非线程安全。
+ */
+public class RASPBinaryLogReader implements Closeable {
+
+	private final RandomAccessFile file;
+
+	private final long length;
+
+	/**
+	 * 下一个块的位置
+	 */
+	private long position;
+
+	private Inflater inflater;
+
+	public RASPBinaryLogReader(File file) throws IOException {
+		this.file = new RandomAccessFile(file, "r");
+		this.length = this.file.length();
+	}
+
+	/**
+	 * 检测文件是否是二进制日志（以块魔数开头）
+	 *
+	 * @param file 日志文件
+	 * @return 是否是二进制日志
+	 * @throws IOException IO异常
+	 */
+	public static boolean isBinaryLog(File file) throws IOException {
+		if (file.length() < HEADER_PREFIX_LENGTH) {
+			return false;
+		}
+
+		DataInputStream in = null;
+
+		try {
+			in = new DataInputStream(new FileInputStream(file));
+
+			return in.readInt() == BLOCK_MAGIC;
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+	}
+
+	/**
+	 * 读取下一个块的块头，并跳过块内容
+	 *
+	 * @return 块信息，没有完整的块或读取到内存映射文件预分配的空间（魔数为0）时返回null
+	 * @throws IOException 块格式错误
+	 */
+	public Block nextBlock() throws IOException {
+		long offset = position;
+
+		if (length - offset < HEADER_PREFIX_LENGTH + HEADER_SUFFIX_LENGTH) {
+			return null;
+		}
+
+		byte[] prefix = new byte[HEADER_PREFIX_LENGTH];
+		file.seek(offset);
+		file.readFully(prefix);
+
+		int magic = readInt(prefix, 0);
+
+		// RASPMappedFileAppender异常退出时未截断的预分配空间
+		if (magic == 0) {
+			return null;
+		}
+
+		if (magic != BLOCK_MAGIC) {
+			throw new IOException("Invalid RASP binary log block at offset " + offset + ".");
+		}
+
+		if (prefix[4] != FORMAT_VERSION) {
+			throw new IOException("Unsupported RASP binary log format version: " + prefix[4] + ".");
+		}
+
+		int  schemaLength = ((prefix[6] & 0xFF) << 8) | (prefix[7] & 0xFF);
+		long headerLength = HEADER_PREFIX_LENGTH + schemaLength + HEADER_SUFFIX_LENGTH;
+
+		if (length - offset < headerLength) {
+			return null;
+		}
+
+		byte[] header = new byte[schemaLength + HEADER_SUFFIX_LENGTH];
+		file.readFully(header);
+
+		Block block = new Block();
+		block.offset = offset;
+		block.compressed = (prefix[5] & FLAG_DEFLATE) != 0;
+		block.schemaVersion = new String(header, 0, schemaLength, DEFAULT_ENCODING);
+		block.recordCount = readInt(header, schemaLength);
+		block.rawLength = readInt(header, schemaLength + 4);
+		block.storedLength = readInt(header, schemaLength + 8);
+		block.crc = readInt(header, schemaLength + 12);
+		block.headerLength = (int) headerLength;
+
+		if (block.storedLength < 0 || block.rawLength < 0 || block.recordCount < 0) {
+			throw new IOException("Invalid RASP binary log block at offset " + offset + ".");
+		}
+
+		// 不完整的块
+		if (length - offset < block.getLength()) {
+			return null;
+		}
+
+		this.position = offset + block.getLength();
+
+		return block;
+	}
+
+	/**
+	 * 读取块中的所有日志
+	 *
+	 * @param block 块信息
+	 * @return 日志列表
+	 * @throws IOException 读取失败或块数据校验失败
+	 */
+	public List<String> readRecords(Block block) throws IOException {
+		byte[]       payload = readPayload(block);
+		List<String> records = new ArrayList<String>(block.recordCount);
+		int          pos     = 0;
+
+		for (int i = 0; i < block.recordCount; i++) {
+			int len = pos + 4 <= payload.length ? readInt(payload, pos) : -1;
+
+			if (len < 0 || pos + 4 + len > payload.length) {
+				throw new IOException("Corrupted RASP binary log block at offset " + block.offset + ".");
+			}
+
+			records.add(new String(payload, pos + 4, len, DEFAULT_ENCODING));
+			pos += 4 + len;
+		}
+
+		return records;
+	}
+
+	/**
+	 * 读取并解压块内容
+	 *
+	 * @param block 块信息
+	 * @return 块内容原始数据
+	 * @throws IOException 读取失败或块数据校验失败
+	 */
+	public byte[] readPayload(Block block) throws IOException {
+		byte[] stored = new byte[block.storedLength];
+		file.seek(block.offset + block.headerLength);
+		file.readFully(stored);
+
+		byte[] payload = stored;
+
+		if (block.compressed) {
+			payload = new byte[block.rawLength];
+
+			if (inflater == null) {
+				inflater = new Inflater(true);
+			}
+
+			try {
+				inflater.reset();
+				inflater.setInput(stored);
+
+				int len = 0;
+
+				while (len < payload.length && !inflater.finished()) {
+					int n = inflater.inflate(payload, len, payload.length - len);
+
+					if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+						break;
+					}
+
+					len += n;
+				}
+
+				if (len != payload.length) {
+					throw new IOException("Corrupted RASP binary log block at offset " + block.offset + ".");
+				}
+			} catch (DataFormatException e) {
+				throw new IOException("Corrupted RASP binary log block at offset " + block.offset + ": " + e);
+			}
+		}
+
+		CRC32 crc32 = new CRC32();
+		crc32.update(payload);
+
+		if ((int) crc32.getValue() != block.crc) {
+			throw new IOException("CRC mismatch in RASP binary log block at offset " + block.offset + ".");
+		}
+
+		return payload;
+	}
+
+	/**
+	 * 移动到指定块的位置，offset必须是nextBlock返回的块位置
+	 *
+	 * @param offset 块位置
+	 */
+	public void seek(long offset) {
+		this.position = offset;
+	}
+
+	/**
+	 * 下一个块的位置，读取完所有块后等于文件中完整块的总长度
+	 *
+	 * @return 下一个块的位置
+	 */
+	public long getPosition() {
+		return position;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (inflater != null) {
+			inflater.end();
+			inflater = null;
+		}
+
+		file.close();
+	}
+
+	/**
+	 * 将二进制日志转换为每行一条的文本日志
+	 *
+	 * @param src    二进制日志文件
+	 * @param dst    输出的文本日志文件
+	 * @param rc4Key 日志加密key，为null时不解密
+	 * @return 转换的日志条数
+	 * @throws IOException IO异常
+	 */
+	public static long convert(File src, File dst, String rc4Key) throws IOException {
+		RASPBinaryLogReader reader = null;
+		Writer              out    = null;
+		long                count  = 0;
+
+		try {
+			reader = new RASPBinaryLogReader(src);
+			out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(dst), DEFAULT_ENCODING));
+
+			Block block;
+
+			while ((block = reader.nextBlock()) != null) {
+				for (String record : reader.readRecords(block)) {
+					out.write(rc4Key != null ? EncryptUtils.deContent(record, rc4Key) : record);
+					out.write('\n');
+					count++;
+				}
+			}
+		} finally {
+			IOUtils.closeQuietly(out);
+			IOUtils.closeQuietly(reader);
+		}
+
+		return count;
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: java " + RASPBinaryLogReader.class.getName() + " <binary log> <output> [rc4Key]");
+			System.exit(1);
+		}
+
+		long count = convert(new File(args[0]), new File(args[1]), args.length > 2 ? args[2] : null);
+
+		System.out.println("Converted " + count + " records to " + args[1]);
+	}
+
+	private static int readInt(byte[] bytes, int off) {
+		return ((bytes[off] & 0xFF) << 24) | ((bytes[off + 1] & 0xFF) << 16) |
+				((bytes[off + 2] & 0xFF) << 8) | (bytes[off + 3] & 0xFF);
+	}
+
+	/**
+	 * 二进制日志块信息
+	 */
+	public static class Block {
+
+		private long offset;
+
+		private int headerLength;
+
+		private boolean compressed;
+
+		private String schemaVersion;
+
+		private int recordCount;
+
+		private int rawLength;
+
+		private int storedLength;
+
+		private int crc;
+
+		/**
+		 * 块在文件中的位置
+		 *
+		 * @return 块位置
+		 */
+		public long getOffset() {
+			return offset;
+		}
+
+		/**
+		 * 块的总长度（块头 + 块内容）
+		 *
+		 * @return 块长度
+		 */
+		public long getLength() {
+			return (long) headerLength + storedLength;
+		}
+
+		public boolean isCompressed() {
+			return compressed;
+		}
+
+		/**
+		 * 写入块时的日志版本（log_version）
+		 *
+		 * @return 日志版本
+		 */
+		public String getSchemaVersion() {
+			return schemaVersion;
+		}
+
+		public int getRecordCount() {
+			return recordCount;
+		}
+
+		public int getRawLength() {
+			return rawLength;
+		}
+
+		public int getStoredLength() {
+			return storedLength;
+		}
+
+	}
+
+}
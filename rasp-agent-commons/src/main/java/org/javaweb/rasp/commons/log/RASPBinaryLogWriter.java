@@ -0,0 +1,254 @@
+package org.javaweb.rasp.commons.log;
+
+import java.io.UnsupportedEncodingException;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import static org.javaweb.rasp.commons.constants.RASPConstants.DEFAULT_ENCODING;
+
+/**
+ * RASP二进制日志块生成器，多条日志合并为一个块，块内容使用Deflate压缩。
+ * <p>
+ * 日志文件由多个块顺序组成，每个块的格式（大端序）：
+ * <pre>
+ * int    魔数：RBLK
+ * byte   格式版本
+ * byte   标识位：1表示块内容使用Deflate（nowrap）压缩
+ * short  日志版本长度
+ * byte[] 日志版本（UTF-8，取自log_version配置）
+ * int    日志条数
+ * int    块内容原始长度
+ * int    块内容存储长度
+ * int    块内容原始数据的CRC32
+ * byte[] 块内容：每条日志为int长度 + UTF-8日志内容（明文JSON或加密后的Base64字符串）
+ * </pre>
+ * 读取时可以只读块头跳过块内容，切割文件时按块复制，不需要解压和解码每条日志。非线程安全。
+ */
+public class RASPBinaryLogWriter {
+
+	/**
+	 * 块魔数："RBLK"
+	 */
+	public static final int BLOCK_MAGIC = 0x52424C4B;
+
+	/**
+	 * 块格式版本
+	 */
+	public static final byte FORMAT_VERSION = 1;
+
+	/**
+	 * 块内容使用Deflate压缩
+	 */
+	public static final byte FLAG_DEFLATE = 1;
+
+	/**
+	 * 块头固定部分长度（魔数、格式版本、标识位、日志版本长度）
+	 */
+	public static final int HEADER_PREFIX_LENGTH = 8;
+
+	/**
+	 * 块头中日志版本之后的长度（日志条数、原始长度、存储长度、CRC32）
+	 */
+	public static final int HEADER_SUFFIX_LENGTH = 16;
+
+	/**
+	 * 日志版本最大长度
+	 */
+	private static final int MAX_SCHEMA_LENGTH = 255;
+
+	/**
+	 * 默认块大小
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+	/**
+	 * 未压缩的块内容
+	 */
+	private byte[] buf;
+
+	private int count;
+
+	private int recordCount;
+
+	private final CRC32 crc32 = new CRC32();
+
+	private Deflater deflater;
+
+	/**
+	 * 压缩输出缓存
+	 */
+	private byte[] deflateBuf;
+
+	public RASPBinaryLogWriter() {
+		this(DEFAULT_BLOCK_SIZE);
+	}
+
+	public RASPBinaryLogWriter(int initialSize) {
+		this.buf = new byte[Math.max(initialSize, 64)];
+	}
+
+	/**
+	 * 添加一条日志
+	 *
+	 * @param record 日志内容
+	 */
+	public void addRecord(String record) {
+		try {
+			byte[] bytes = record.getBytes(DEFAULT_ENCODING);
+			addRecord(bytes, 0, bytes.length);
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * 添加一条日志
+	 *
+	 * @param bytes 日志内容
+	 * @param off   起始位置
+	 * @param len   长度
+	 */
+	public void addRecord(byte[] bytes, int off, int len) {
+		ensureCapacity(count + 4 + len);
+		writeInt(buf, count, len);
+		System.arraycopy(bytes, off, buf, count + 4, len);
+
+		count += 4 + len;
+		recordCount++;
+	}
+
+	/**
+	 * 生成块并清空已添加的日志
+	 *
+	 * @param schemaVersion 日志版本
+	 * @return 完整的块数据，没有日志时返回null
+	 */
+	public byte[] finishBlock(String schemaVersion) {
+		if (recordCount == 0) {
+			return null;
+		}
+
+		byte[] schema = getSchemaBytes(schemaVersion);
+
+		crc32.reset();
+		crc32.update(buf, 0, count);
+
+		int    compressedLength = deflate();
+		byte   flags            = compressedLength > 0 ? FLAG_DEFLATE : 0;
+		byte[] payload          = compressedLength > 0 ? deflateBuf : buf;
+		int    payloadLength    = compressedLength > 0 ? compressedLength : count;
+		int    headerLength     = HEADER_PREFIX_LENGTH + schema.length + HEADER_SUFFIX_LENGTH;
+		byte[] block            = new byte[headerLength + payloadLength];
+
+		writeInt(block, 0, BLOCK_MAGIC);
+		block[4] = FORMAT_VERSION;
+		block[5] = flags;
+		block[6] = (byte) (schema.length >>> 8);
+		block[7] = (byte) schema.length;
+		System.arraycopy(schema, 0, block, HEADER_PREFIX_LENGTH, schema.length);
+
+		int pos = HEADER_PREFIX_LENGTH + schema.length;
+		writeInt(block, pos, recordCount);
+		writeInt(block, pos + 4, count);
+		writeInt(block, pos + 8, payloadLength);
+		writeInt(block, pos + 12, (int) crc32.getValue());
+		System.arraycopy(payload, 0, block, headerLength, payloadLength);
+
+		this.count = 0;
+		this.recordCount = 0;
+
+		return block;
+	}
+
+	/**
+	 * 压缩块内容
+	 *
+	 * @return 压缩后的长度，压缩后没有变小时返回0
+	 */
+	private int deflate() {
+		if (deflater == null) {
+			deflater = new Deflater(Deflater.BEST_SPEED, true);
+		}
+
+		if (deflateBuf == null || deflateBuf.length < count) {
+			deflateBuf = new byte[buf.length];
+		}
+
+		deflater.reset();
+		deflater.setInput(buf, 0, count);
+		deflater.finish();
+
+		int len = 0;
+
+		while (!deflater.finished()) {
+			// 压缩后没有变小时直接存储原始数据
+			if (len >= count) {
+				return 0;
+			}
+
+			len += deflater.deflate(deflateBuf, len, count - len);
+		}
+
+		return len < count ? len : 0;
+	}
+
+	private static byte[] getSchemaBytes(String schemaVersion) {
+		if (schemaVersion == null) {
+			return new byte[0];
+		}
+
+		try {
+			byte[] bytes = schemaVersion.getBytes(DEFAULT_ENCODING);
+
+			if (bytes.length > MAX_SCHEMA_LENGTH) {
+				byte[] newBytes = new byte[MAX_SCHEMA_LENGTH];
+				System.arraycopy(bytes, 0, newBytes, 0, MAX_SCHEMA_LENGTH);
+
+				return newBytes;
+			}
+
+			return bytes;
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private void ensureCapacity(int minCapacity) {
+		if (minCapacity > buf.length) {
+			byte[] newBuf = new byte[Math.max(buf.length << 1, minCapacity)];
+			System.arraycopy(buf, 0, newBuf, 0, count);
+			buf = newBuf;
+		}
+	}
+
+	static void writeInt(byte[] bytes, int off, int value) {
+		bytes[off] = (byte) (value >>> 24);
+		bytes[off + 1] = (byte) (value >>> 16);
+		bytes[off + 2] = (byte) (value >>> 8);
+		bytes[off + 3] = (byte) value;
+	}
+
+	/**
+	 * 未压缩的块内容大小
+	 *
+	 * @return 块内容大小
+	 */
+	public int size() {
+		return count;
+	}
+
+	public int getRecordCount() {
+		return recordCount;
+	}
+
+	/**
+	 * 释放Deflater占用的本地内存，释放后仍然可以继续使用
+	 */
+	public void end() {
+		if (deflater != null) {
+			deflater.end();
+			deflater = null;
+		}
+	}
+
+}
@@ -3,9 +3,14 @@ package org.javaweb.rasp.commons.log;
 import com.google.gson.annotations.SerializedName;
 import org.javaweb.rasp.commons.context.RASPHttpRequestContext;
 import org.javaweb.rasp.commons.servlet.HttpServletRequestProxy;
+import org.javaweb.rasp.commons.utils.RASPJsonWriter;
 
 import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static java.lang.System.currentTimeMillis;
 import static org.javaweb.rasp.commons.config.RASPConfiguration.AGENT_PROPERTIES;
@@ -77,6 +82,11 @@ public class RASPLog implements Serializable {
 
 	private static final String TIME_ZONE = TimeZone.getDefault().getID();
 
+	/**
+	 * 缓存日志类是否支持使用RASPJsonWriter序列化
+	 */
+	private static final Map<Class<?>, Boolean> JSON_WRITER_SUPPORTED = new ConcurrentHashMap<Class<?>, Boolean>();
+
 	public RASPLog(RASPHttpRequestContext context) {
 		HttpServletRequestProxy request = context.getServletRequest();
 
@@ -97,6 +107,88 @@ public class RASPLog implements Serializable {
 		this.queryString = request.getQueryString();
 	}
 
+	/**
+	 * 使用RASPJsonWriter序列化日志，输出和Gson完全一致
+	 *
+	 * @param writer JSON输出对象
+	 */
+	public void writeJson(RASPJsonWriter writer) {
+		writer.beginObject();
+		writeJsonFields(writer);
+		writer.endObject();
+	}
+
+	/**
+	 * 输出日志字段。子类如果添加了需要序列化的字段，必须重写该方法，先输出子类字段再调用super.writeJsonFields，
+	 * 以保证字段顺序和Gson一致，否则序列化时会使用Gson
+	 *
+	 * @param writer JSON输出对象
+	 */
+	protected void writeJsonFields(RASPJsonWriter writer) {
+		writer.field("log_version", logVersion)
+				.field("app_id", appId)
+				.field("time", time)
+				.field("timezone", timezone)
+				.field("scheme", scheme)
+				.field("domain", domain)
+				.field("context_path", contextPath)
+				.field("port", port)
+				.field("remote_ip", remoteIp)
+				.field("server_ip", serverIp)
+				.field("request_method", requestMethod)
+				.field("request_uri", requestUri)
+				.field("request_url", requestUrl)
+				.field("query_string", queryString)
+				.field("document_root", documentRoot);
+	}
+
+	/**
+	 * 检测日志类是否支持使用RASPJsonWriter序列化：子类中所有需要序列化的字段都必须由重写的writeJsonFields输出
+	 *
+	 * @param logClass 日志类
+	 * @return 是否支持
+	 */
+	public static boolean isJsonWriterSupported(Class<? extends RASPLog> logClass) {
+		Boolean supported = JSON_WRITER_SUPPORTED.get(logClass);
+
+		if (supported == null) {
+			supported = Boolean.TRUE;
+
+			for (Class<?> clazz = logClass; clazz != RASPLog.class; clazz = clazz.getSuperclass()) {
+				if (hasSerializableField(clazz) && !declaresWriteJsonFields(clazz)) {
+					supported = Boolean.FALSE;
+					break;
+				}
+			}
+
+			JSON_WRITER_SUPPORTED.put(logClass, supported);
+		}
+
+		return supported;
+	}
+
+	private static boolean hasSerializableField(Class<?> clazz) {
+		for (Field field : clazz.getDeclaredFields()) {
+			int modifiers = field.getModifiers();
+
+			if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !field.isSynthetic()) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static boolean declaresWriteJsonFields(Class<?> clazz) {
+		try {
+			clazz.getDeclaredMethod("writeJsonFields", RASPJsonWriter.class);
+
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
 	public String getLogVersion() {
 		return logVersion;
 	}
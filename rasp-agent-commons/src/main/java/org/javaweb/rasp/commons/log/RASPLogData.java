@@ -13,11 +13,20 @@ public class RASPLogData {
 	 */
 	private final boolean encrypt;
 
+	/**
+	 * 日志类型：access、attack、trace
+	 */
+	private final String logType;
 
 	public RASPLogData(RASPLog raspLog, Logger logger, boolean encrypt) {
+		this(raspLog, logger, encrypt, logger != null ? RASPLogger.getLogType(logger.getName()) : null);
+	}
+
+	public RASPLogData(RASPLog raspLog, Logger logger, boolean encrypt, String logType) {
 		this.raspLog = raspLog;
 		this.logger = logger;
 		this.encrypt = encrypt;
+		this.logType = logType;
 	}
 
 	public RASPLog getRaspLog() {
@@ -32,4 +41,8 @@ public class RASPLogData {
 		return encrypt;
 	}
 
+	public String getLogType() {
+		return logType;
+	}
+
 }
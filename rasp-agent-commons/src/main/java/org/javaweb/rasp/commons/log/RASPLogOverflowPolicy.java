@@ -0,0 +1,42 @@
+package org.javaweb.rasp.commons.log;
+
+/**
+ * RASP日志队列已满时的处理策略
+ */
+public enum RASPLogOverflowPolicy {
+
+	/**
+	 * 丢弃队列中最早的日志，保留最新的日志
+	 */
+	DROP_OLDEST,
+
+	/**
+	 * 丢弃新添加的日志
+	 */
+	DROP_NEW,
+
+	/**
+	 * 按采样率保留新添加的日志：每N条溢出的日志保留1条（丢弃队列中最早的日志），其余丢弃
+	 */
+	SAMPLE;
+
+	/**
+	 * 解析日志队列溢出策略，忽略大小写，如：drop_oldest
+	 *
+	 * @param name         策略名称
+	 * @param defaultValue 默认策略
+	 * @return 日志队列溢出策略
+	 */
+	public static RASPLogOverflowPolicy getPolicy(String name, RASPLogOverflowPolicy defaultValue) {
+		if (name != null) {
+			for (RASPLogOverflowPolicy policy : values()) {
+				if (policy.name().equalsIgnoreCase(name.trim())) {
+					return policy;
+				}
+			}
+		}
+
+		return defaultValue;
+	}
+
+}
@@ -0,0 +1,272 @@
+package org.javaweb.rasp.commons.log;
+
+import org.javaweb.rasp.commons.sync.RASPRingBuffer;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.javaweb.rasp.commons.constants.RASPConstants.ATTACK_LOG;
+import static org.javaweb.rasp.commons.constants.RASPConstants.TRACE_LOG;
+
+/**
+ * 按应用和日志类型（访问日志、攻击日志、调用链日志）分片的RASP日志队列，每个分片是独立的无锁环形队列，
+ * 一个应用的日志写满队列只会影响该应用同类型的日志。
+ * <p>
+ * 日志线程按轮询方式从每个分片最多取出DRAIN_QUANTUM条日志，保证每个分片都能公平地写入日志。
+ * 分片在第一次写入日志时创建，不会删除。
+ */
+public class RASPLogQueue {
+
+	/**
+	 * 每次轮询时每个分片最多取出的日志数
+	 */
+	private static final int DRAIN_QUANTUM = 16;
+
+	/**
+	 * 日志类型个数：access、attack、trace
+	 */
+	private static final int LOG_TYPE_COUNT = 3;
+
+	/**
+	 * 应用ID为null时使用的分片key
+	 */
+	private static final String DEFAULT_APP_ID = "";
+
+	/**
+	 * 每个分片的队列容量
+	 */
+	private final int shardCapacity;
+
+	private final ConcurrentMap<String, Shard[]> appShards = new ConcurrentHashMap<String, Shard[]>();
+
+	/**
+	 * 所有分片，用于日志线程轮询
+	 */
+	private final List<Shard> shards = new CopyOnWriteArrayList<Shard>();
+
+	/**
+	 * 下一次轮询开始的分片，只在日志线程中修改
+	 */
+	private int drainIndex;
+
+	public RASPLogQueue(int shardCapacity) {
+		this.shardCapacity = shardCapacity;
+	}
+
+	/**
+	 * 获取日志所属的分片
+	 *
+	 * @param log RASP日志
+	 * @return 日志分片
+	 */
+	public Shard getShard(RASPLogData log) {
+		RASPLog raspLog = log.getRaspLog();
+
+		return getShard(raspLog != null ? raspLog.getAppId() : null, log.getLogType());
+	}
+
+	/**
+	 * 获取应用和日志类型对应的分片，不存在时创建
+	 *
+	 * @param appId   应用ID
+	 * @param logType 日志类型
+	 * @return 日志分片
+	 */
+	public Shard getShard(String appId, String logType) {
+		String  key   = appId != null ? appId : DEFAULT_APP_ID;
+		int     index = getLogTypeIndex(logType);
+		Shard[] array = appShards.get(key);
+
+		if (array == null) {
+			Shard[] newArray = new Shard[LOG_TYPE_COUNT];
+			array = appShards.putIfAbsent(key, newArray);
+
+			if (array == null) {
+				array = newArray;
+			}
+		}
+
+		Shard shard = array[index];
+
+		if (shard == null) {
+			synchronized (array) {
+				shard = array[index];
+
+				if (shard == null) {
+					shard = new Shard(key, logType, shardCapacity);
+					shards.add(shard);
+					array[index] = shard;
+				}
+			}
+		}
+
+		return shard;
+	}
+
+	private static int getLogTypeIndex(String logType) {
+		if (ATTACK_LOG.equals(logType)) {
+			return 1;
+		} else if (TRACE_LOG.equals(logType)) {
+			return 2;
+		}
+
+		return 0;
+	}
+
+	/**
+	 * 轮询所有分片取出日志，只能在一个线程中调用
+	 *
+	 * @param c   取出的日志
+	 * @param max 最多取出的日志数
+	 * @return 取出的日志数
+	 */
+	public int drainTo(Collection<? super RASPLogData> c, int max) {
+		Object[] array = shards.toArray();
+		int      size  = array.length;
+		int      count = 0;
+
+		if (size == 0) {
+			return 0;
+		}
+
+		boolean drained = true;
+
+		// 每轮从每个分片最多取出DRAIN_QUANTUM条日志，直到取够max条或所有分片为空
+		while (count < max && drained) {
+			drained = false;
+
+			for (int i = 0; i < size && count < max; i++) {
+				Shard shard = (Shard) array[(drainIndex + i) % size];
+				int   limit = Math.min(DRAIN_QUANTUM, max - count);
+
+				for (int j = 0; j < limit; j++) {
+					RASPLogData log = shard.poll();
+
+					if (log == null) {
+						break;
+					}
+
+					c.add(log);
+					count++;
+					drained = true;
+				}
+			}
+
+			drainIndex = (drainIndex + 1) % size;
+		}
+
+		return count;
+	}
+
+	/**
+	 * 获取所有分片中的日志数，并发修改时只是一个近似值
+	 *
+	 * @return 日志数
+	 */
+	public int size() {
+		int size = 0;
+
+		for (Shard shard : shards) {
+			size += shard.size();
+		}
+
+		return size;
+	}
+
+	public boolean isEmpty() {
+		for (Shard shard : shards) {
+			if (!shard.isEmpty()) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * 获取所有分片，用于统计每个应用的日志队列情况
+	 *
+	 * @return 分片列表
+	 */
+	public List<Shard> getShards() {
+		return shards;
+	}
+
+	public int getShardCapacity() {
+		return shardCapacity;
+	}
+
+	/**
+	 * 日志分片
+	 */
+	public static class Shard {
+
+		private final String appId;
+
+		private final String logType;
+
+		private final RASPRingBuffer<RASPLogData> queue;
+
+		/**
+		 * 队列已满丢弃的日志数
+		 */
+		private final AtomicLong droppedCount = new AtomicLong();
+
+		/**
+		 * 队列已满的次数，用于溢出采样
+		 */
+		private final AtomicLong overflowCount = new AtomicLong();
+
+		Shard(String appId, String logType, int capacity) {
+			this.appId = appId;
+			this.logType = logType;
+			this.queue = new RASPRingBuffer<RASPLogData>(capacity);
+		}
+
+		public boolean offer(RASPLogData log) {
+			return queue.offer(log);
+		}
+
+		public RASPLogData poll() {
+			return queue.poll();
+		}
+
+		public int size() {
+			return queue.size();
+		}
+
+		public boolean isEmpty() {
+			return queue.isEmpty();
+		}
+
+		public String getAppId() {
+			return appId;
+		}
+
+		public String getLogType() {
+			return logType;
+		}
+
+		public int getCapacity() {
+			return queue.capacity();
+		}
+
+		public long getDroppedCount() {
+			return droppedCount.get();
+		}
+
+		public long incrementDroppedCount() {
+			return droppedCount.incrementAndGet();
+		}
+
+		public long incrementOverflowCount() {
+			return overflowCount.incrementAndGet();
+		}
+
+	}
+
+}
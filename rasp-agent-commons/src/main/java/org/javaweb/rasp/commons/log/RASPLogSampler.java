@@ -0,0 +1,184 @@
+package org.javaweb.rasp.commons.log;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * 访问日志采样器，由请求线程并发调用，所有实现均为无锁实现。
+ * <p>
+ * 采样器只决定普通请求是否记录访问日志，产生了攻击日志的请求由调用方直接记录，不消耗采样配额。
+ * 重新加载配置时创建新的采样器，采样状态随之重置。
+ */
+public abstract class RASPLogSampler {
+
+	/**
+	 * 记录所有日志的采样器
+	 */
+	public static final RASPLogSampler ALWAYS = new RASPLogSampler() {
+		@Override
+		public boolean sample() {
+			return true;
+		}
+	};
+
+	/**
+	 * 判断当前请求是否需要记录访问日志，每个请求只能调用一次
+	 *
+	 * @return 是否记录
+	 */
+	public abstract boolean sample();
+
+	/**
+	 * 创建访问日志采样器
+	 *
+	 * @param policy        采样策略
+	 * @param rate          固定比例采样的采样率，取值范围：(0, 1]
+	 * @param limit         令牌桶每秒保留的日志数或蓄水池每个周期保留的日志数
+	 * @param windowSeconds 蓄水池采样周期（秒）
+	 * @return 采样器
+	 */
+	public static RASPLogSampler create(RASPLogSamplingPolicy policy, double rate, int limit, int windowSeconds) {
+		if (policy == RASPLogSamplingPolicy.RATE && rate < 1) {
+			return new RateSampler(rate);
+		} else if (policy == RASPLogSamplingPolicy.TOKEN_BUCKET) {
+			return new TokenBucketSampler(limit);
+		} else if (policy == RASPLogSamplingPolicy.RESERVOIR) {
+			return new ReservoirSampler(limit, SECONDS.toNanos(windowSeconds));
+		}
+
+		return ALWAYS;
+	}
+
+	/**
+	 * 固定比例采样，使用计数器而不是随机数，保留的日志在请求序列中均匀分布
+	 */
+	static class RateSampler extends RASPLogSampler {
+
+		/**
+		 * 采样率精度：百万分之一
+		 */
+		private static final long SCALE = 1000000;
+
+		private final long rate;
+
+		private final AtomicLong counter = new AtomicLong();
+
+		RateSampler(double rate) {
+			this.rate = Math.max(1, Math.min(SCALE, Math.round(rate * SCALE)));
+		}
+
+		@Override
+		public boolean sample() {
+			long n = counter.getAndIncrement() % SCALE;
+
+			// 第n条和第n+1条请求之间的累计采样数增加时保留
+			return (n + 1) * rate / SCALE > n * rate / SCALE;
+		}
+
+	}
+
+	/**
+	 * 令牌桶采样，使用GCRA（Generic Cell Rate Algorithm）算法，只需要维护一个理论到达时间，一次CAS完成取令牌
+	 */
+	static class TokenBucketSampler extends RASPLogSampler {
+
+		/**
+		 * 生成一个令牌的间隔（纳秒）
+		 */
+		private final long interval;
+
+		/**
+		 * 令牌桶容量对应的时间（纳秒），即允许突发的日志量
+		 */
+		private final long capacity;
+
+		/**
+		 * 理论到达时间（Theoretical Arrival Time）
+		 */
+		private final AtomicLong tat;
+
+		TokenBucketSampler(int limit) {
+			this.interval = SECONDS.toNanos(1) / Math.max(1, limit);
+			this.capacity = interval * Math.max(1, limit);
+			this.tat = new AtomicLong(System.nanoTime());
+		}
+
+		@Override
+		public boolean sample() {
+			long now = System.nanoTime();
+
+			while (true) {
+				long current = tat.get();
+				long next    = (current - now > 0 ? current : now) + interval;
+
+				// 令牌已用完
+				if (next - now > capacity) {
+					return false;
+				}
+
+				if (tat.compareAndSet(current, next)) {
+					return true;
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * 按周期的蓄水池采样，周期内前limit条全部保留，第i条按limit/i的概率保留
+	 */
+	static class ReservoirSampler extends RASPLogSampler {
+
+		private static final ThreadLocal<Random> RANDOM = new ThreadLocal<Random>() {
+			@Override
+			protected Random initialValue() {
+				return new Random();
+			}
+		};
+
+		private final int limit;
+
+		private final long windowNanos;
+
+		private final AtomicReference<Window> window;
+
+		ReservoirSampler(int limit, long windowNanos) {
+			this.limit = Math.max(1, limit);
+			this.windowNanos = Math.max(1, windowNanos);
+			this.window = new AtomicReference<Window>(new Window(System.nanoTime()));
+		}
+
+		@Override
+		public boolean sample() {
+			long   now     = System.nanoTime();
+			Window current = window.get();
+
+			// 进入新的采样周期，CAS失败说明其他线程已经创建了新周期
+			if (now - current.start >= windowNanos) {
+				Window next = new Window(now);
+				current = window.compareAndSet(current, next) ? next : window.get();
+			}
+
+			long i = current.count.incrementAndGet();
+
+			return i <= limit || RANDOM.get().nextDouble() * i < limit;
+		}
+
+		private static class Window {
+
+			private final long start;
+
+			private final AtomicLong count = new AtomicLong();
+
+			Window(long start) {
+				this.start = start;
+			}
+
+		}
+
+	}
+
+}
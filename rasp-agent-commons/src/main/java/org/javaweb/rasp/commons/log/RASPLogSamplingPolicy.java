@@ -0,0 +1,48 @@
+package org.javaweb.rasp.commons.log;
+
+/**
+ * 访问日志采样策略
+ */
+public enum RASPLogSamplingPolicy {
+
+	/**
+	 * 不采样，记录所有访问日志
+	 */
+	NONE,
+
+	/**
+	 * 固定比例采样：按access_log_sample_rate均匀地保留访问日志，如：0.1表示每10条保留1条
+	 */
+	RATE,
+
+	/**
+	 * 令牌桶：每秒最多保留access_log_sample_limit条访问日志，允许突发一秒的日志量
+	 */
+	TOKEN_BUCKET,
+
+	/**
+	 * 蓄水池采样：每个采样周期内前access_log_sample_limit条日志全部保留，之后第i条日志按limit/i的概率保留，
+	 * 请求量越大保留比例越低，同时周期内的每一段请求都有机会被记录
+	 */
+	RESERVOIR;
+
+	/**
+	 * 解析访问日志采样策略，忽略大小写，如：token_bucket
+	 *
+	 * @param name         策略名称
+	 * @param defaultValue 默认策略
+	 * @return 访问日志采样策略
+	 */
+	public static RASPLogSamplingPolicy getPolicy(String name, RASPLogSamplingPolicy defaultValue) {
+		if (name != null) {
+			for (RASPLogSamplingPolicy policy : values()) {
+				if (policy.name().equalsIgnoreCase(name.trim())) {
+					return policy;
+				}
+			}
+		}
+
+		return defaultValue;
+	}
+
+}
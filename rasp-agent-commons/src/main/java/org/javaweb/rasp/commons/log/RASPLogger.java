@@ -6,10 +6,13 @@ import ch.qos.logback.classic.LoggerContext;
 import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.encoder.Encoder;
 import ch.qos.logback.core.util.FileSize;
 import org.javaweb.rasp.commons.config.RASPConfiguration;
 import org.javaweb.rasp.loader.AgentConstants;
+import org.javaweb.rasp.commons.logback.RASPBinaryLogEncoder;
 import org.javaweb.rasp.commons.logback.RASPFileAppender;
+import org.javaweb.rasp.commons.logback.RASPMappedFileAppender;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
@@ -19,6 +22,7 @@ import java.util.Iterator;
 import java.util.List;
 
 import static java.lang.Long.MAX_VALUE;
+import static org.javaweb.rasp.commons.config.RASPConfiguration.AGENT_PROPERTIES;
 import static org.javaweb.rasp.commons.constants.RASPConstants.*;
 
 public class RASPLogger {
@@ -30,39 +34,115 @@ public class RASPLogger {
 	}
 
 	public static Logger createRASPLogger(String name, File file, Level level, String pattern, String fileSize) {
-		// 设置日志格式
-		PatternLayoutEncoder layout = new PatternLayoutEncoder();
-		layout.setPattern(pattern);
-		layout.setContext(LOGGER_CONTEXT);
-		layout.start();
+		Encoder<ILoggingEvent> layout = createEncoder(name, pattern);
 
-		RASPFileAppender<ILoggingEvent> fileAppender = new RASPFileAppender<ILoggingEvent>();
-		fileAppender.setEncoder(layout);
+		long maxFileSize = MAX_VALUE;
 
 		if (fileSize != null) {
 			try {
-				FileSize size = FileSize.valueOf(fileSize);
-				fileAppender.setFileSize(size.getSize());
-			} catch (IllegalArgumentException e) {
-				fileAppender.setFileSize(MAX_VALUE);
+				maxFileSize = FileSize.valueOf(fileSize).getSize();
+			} catch (IllegalArgumentException ignored) {
 			}
+		}
+
+		Appender<ILoggingEvent> appender;
+
+		if (isMappedLogger(name)) {
+			// 使用内存映射文件写日志，日志超过fileSize时自动切割
+			RASPMappedFileAppender<ILoggingEvent> mappedAppender = new RASPMappedFileAppender<ILoggingEvent>();
+			mappedAppender.setEncoder(layout);
+			mappedAppender.setFileSize(maxFileSize);
+			mappedAppender.setFile(file.toString());
+
+			appender = mappedAppender;
 		} else {
-			fileAppender.setFileSize(MAX_VALUE);
+			appender = createFileAppender(name, file, layout, maxFileSize);
 		}
 
-		fileAppender.setFile(file.toString());
-		fileAppender.setContext(LOGGER_CONTEXT);
-		fileAppender.start();
+		appender.setContext(LOGGER_CONTEXT);
+		appender.start();
 
 		// 初始化日志配置
 		Logger logger = (Logger) LoggerFactory.getLogger(name);
-		logger.addAppender(fileAppender);
+		logger.addAppender(appender);
 		logger.setLevel(level);
 		logger.setAdditive(false);
 
 		return logger;
 	}
 
+	/**
+	 * 创建日志编码器，启用log_binary后访问日志、攻击日志和调用链日志使用二进制块格式，日志格式中只保留日志消息
+	 */
+	private static Encoder<ILoggingEvent> createEncoder(String name, String pattern) {
+		if (isBinaryLogger(name)) {
+			RASPBinaryLogEncoder encoder = new RASPBinaryLogEncoder();
+			encoder.setBlockSize((int) FileSize.valueOf(AGENT_PROPERTIES.getLogBinaryBlockSize()).getSize());
+			encoder.setContext(LOGGER_CONTEXT);
+			encoder.start();
+
+			return encoder;
+		}
+
+		// 设置日志格式
+		PatternLayoutEncoder layout = new PatternLayoutEncoder();
+		layout.setPattern(pattern);
+		layout.setContext(LOGGER_CONTEXT);
+		layout.start();
+
+		return layout;
+	}
+
+	private static RASPFileAppender<ILoggingEvent> createFileAppender(String name, File file,
+	                                                                  Encoder<ILoggingEvent> layout, long fileSize) {
+
+		RASPFileAppender<ILoggingEvent> fileAppender = new RASPFileAppender<ILoggingEvent>();
+		fileAppender.setEncoder(layout);
+		fileAppender.setFileSize(fileSize);
+
+		// 访问日志和调用链日志合并flush，攻击日志和Agent日志每条都立即flush
+		if (isGroupCommitLogger(name)) {
+			long groupCommitSize = FileSize.valueOf(AGENT_PROPERTIES.getLogGroupCommitSize()).getSize();
+
+			fileAppender.setGroupCommit(true);
+			fileAppender.setGroupCommitSize(groupCommitSize);
+			fileAppender.setGroupCommitWindow(AGENT_PROPERTIES.getLogGroupCommitWindow());
+			fileAppender.setBufferSize(new FileSize(Math.max(groupCommitSize, RASPFileAppender.DEFAULT_BUFFER_SIZE)));
+		}
+
+		fileAppender.setFile(file.toString());
+
+		return fileAppender;
+	}
+
+	private static boolean isMappedLogger(String name) {
+		if (name.startsWith(ACCESS_LOGGER_PREFIX) || name.startsWith(ATTACK_LOGGER_PREFIX) ||
+				name.startsWith(TRACE_LOGGER_PREFIX)) {
+
+			return AGENT_PROPERTIES.isLogMapped();
+		}
+
+		return false;
+	}
+
+	private static boolean isBinaryLogger(String name) {
+		if (name.startsWith(ACCESS_LOGGER_PREFIX) || name.startsWith(ATTACK_LOGGER_PREFIX) ||
+				name.startsWith(TRACE_LOGGER_PREFIX)) {
+
+			return AGENT_PROPERTIES.isLogBinary();
+		}
+
+		return false;
+	}
+
+	private static boolean isGroupCommitLogger(String name) {
+		if (name.startsWith(ACCESS_LOGGER_PREFIX) || name.startsWith(TRACE_LOGGER_PREFIX)) {
+			return AGENT_PROPERTIES.isLogGroupCommit();
+		}
+
+		return false;
+	}
+
 	/**
 	 * 检测Logger上下文中是否注册了传入的logger
 	 *
@@ -104,6 +184,8 @@ public class RASPLogger {
 						RASPFileAppender<ILoggingEvent> appender = (RASPFileAppender<ILoggingEvent>) e;
 						appender.rollover();
 						appender.start();
+					} else if (e instanceof RASPMappedFileAppender) {
+						((RASPMappedFileAppender<ILoggingEvent>) e).rollover();
 					}
 				}
 			}
@@ -136,6 +218,22 @@ public class RASPLogger {
 		return ACCESS_LOG_FILE_NAME;
 	}
 
+	/**
+	 * 根据logger名称获取日志类型
+	 *
+	 * @param loggerName logger名称
+	 * @return 日志类型，默认为访问日志
+	 */
+	public static String getLogType(String loggerName) {
+		if (loggerName.startsWith(ATTACK_LOGGER_PREFIX)) {
+			return ATTACK_LOG;
+		} else if (loggerName.startsWith(TRACE_LOGGER_PREFIX)) {
+			return TRACE_LOG;
+		}
+
+		return ACCESS_LOG;
+	}
+
 	public static String getLoggerPrefix(String logType) {
 		if (ATTACK_LOG.equals(logType)) {
 			return ATTACK_LOGGER_PREFIX;
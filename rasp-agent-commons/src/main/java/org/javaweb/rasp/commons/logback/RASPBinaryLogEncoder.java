@@ -0,0 +1,115 @@
+package org.javaweb.rasp.commons.logback;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.encoder.EncoderBase;
+import org.javaweb.rasp.commons.log.RASPBinaryLogWriter;
+
+import static org.javaweb.rasp.commons.config.RASPConfiguration.AGENT_PROPERTIES;
+import static org.javaweb.rasp.commons.log.RASPBinaryLogWriter.DEFAULT_BLOCK_SIZE;
+
+/**
+ * RASP二进制日志编码器，将日志消息（明文JSON或加密后的字符串）合并为RASPBinaryLogWriter格式的块。
+ * <p>
+ * 块内容达到blockSize或第一条日志缓存超过blockWindow毫秒后，encode返回完整的块，其余情况返回空数组；
+ * 没有新日志时由日志线程定时调用flushBlock输出超过blockWindow的块，避免日志长时间停留在内存中；
+ * 日志切割或关闭时通过footerBytes输出剩余的日志，因此切割后的日志文件只包含完整的块。
+ */
+public class RASPBinaryLogEncoder extends EncoderBase<ILoggingEvent> {
+
+	private static final byte[] EMPTY_BYTES = new byte[0];
+
+	private final RASPBinaryLogWriter writer = new RASPBinaryLogWriter();
+
+	/**
+	 * 块大小（未压缩）
+	 */
+	private int blockSize = DEFAULT_BLOCK_SIZE;
+
+	/**
+	 * 日志最长缓存时间（毫秒）
+	 */
+	private long blockWindow = 1000;
+
+	/**
+	 * 当前块中第一条日志的时间
+	 */
+	private long blockStartTime;
+
+	@Override
+	public byte[] headerBytes() {
+		return EMPTY_BYTES;
+	}
+
+	@Override
+	public synchronized byte[] encode(ILoggingEvent event) {
+		long now = System.currentTimeMillis();
+
+		if (writer.getRecordCount() == 0) {
+			this.blockStartTime = now;
+		}
+
+		writer.addRecord(event.getFormattedMessage());
+
+		if (writer.size() >= blockSize || now - blockStartTime >= blockWindow) {
+			return finishBlock();
+		}
+
+		return EMPTY_BYTES;
+	}
+
+	/**
+	 * 输出缓存时间超过blockWindow的块
+	 *
+	 * @param force 是否忽略blockWindow输出所有缓存的日志
+	 * @return 完整的块，没有需要输出的日志时返回空数组
+	 */
+	public synchronized byte[] flushBlock(boolean force) {
+		if (writer.getRecordCount() == 0) {
+			return EMPTY_BYTES;
+		}
+
+		if (!force && System.currentTimeMillis() - blockStartTime < blockWindow) {
+			return EMPTY_BYTES;
+		}
+
+		return finishBlock();
+	}
+
+	@Override
+	public synchronized byte[] footerBytes() {
+		return finishBlock();
+	}
+
+	private byte[] finishBlock() {
+		byte[] block = writer.finishBlock(AGENT_PROPERTIES.getLogVersion());
+
+		return block != null ? block : EMPTY_BYTES;
+	}
+
+	@Override
+	public synchronized void stop() {
+		writer.end();
+		super.stop();
+	}
+
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	public void setBlockSize(int blockSize) {
+		if (blockSize > 0) {
+			this.blockSize = blockSize;
+		}
+	}
+
+	public long getBlockWindow() {
+		return blockWindow;
+	}
+
+	public void setBlockWindow(long blockWindow) {
+		if (blockWindow >= 0) {
+			this.blockWindow = blockWindow;
+		}
+	}
+
+}
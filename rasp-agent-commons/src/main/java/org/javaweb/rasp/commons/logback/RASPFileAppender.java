@@ -303,6 +303,9 @@ public class RASPFileAppender<E> extends RASPOutputStreamAppender<E> {
 		File file       = new File(getFile());
 		File parentFile = file.getParentFile();
 
+		// 先写入二进制日志编码器缓存的块，避免日志文件为空时不切割
+		flushBinaryLog(true);
+
 		if (file.exists() && file.length() > 0) {
 			try {
 				stop();
@@ -0,0 +1,633 @@
+package org.javaweb.rasp.commons.logback;
+
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.encoder.Encoder;
+import ch.qos.logback.core.spi.DeferredProcessingAware;
+import ch.qos.logback.core.status.ErrorStatus;
+import ch.qos.logback.core.util.FileUtil;
+import org.javaweb.rasp.commons.log.RASPBinaryLogReader;
+import org.javaweb.rasp.commons.utils.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+
+/**
+ * 基于内存映射文件（MappedByteBuffer）的日志appender，日志直接写入映射到内存的文件区域，不需要flush和write系统调用，
+ * 写入后其他进程立即可以读取到，JVM异常退出时已写入的日志也不会丢失。
+ * <p>
+ * 和RASPFileAppender的区别：
+ * <ul>
+ *     <li>文件大小在内存中记录，写日志时不需要调用File.exists()和File.length()；</li>
+ *     <li>始终预先创建并映射好下一个日志文件（日志文件名 + ".next"），切割日志时只需要在锁内切换当前写入的文件，
+ *     关闭、重命名旧文件都在锁外完成，不会阻塞写日志的线程；</li>
+ *     <li>日志大小超过fileSize时自动切割，切割后的文件不需要再调用FileUtils.split拆分。</li>
+ * </ul>
+ * 映射区域按mappedSize预分配，未写满的部分为0，关闭时会截断到实际大小，异常退出后重新打开时会自动跳过结尾的0；
+ * 二进制日志（RASPBinaryLogEncoder）的压缩数据可能以0结尾，异常退出后按块头查找最后一个完整块的结尾。
+ *
+ * @param <E> 日志事件类型
+ */
+public class RASPMappedFileAppender<E> extends UnsynchronizedAppenderBase<E> {
+
+	/**
+	 * 默认每次映射的文件大小：4MB
+	 */
+	public static final int DEFAULT_MAPPED_SIZE = 4 * 1024 * 1024;
+
+	/**
+	 * 预创建的下一个日志文件后缀
+	 */
+	private static final String NEXT_FILE_SUFFIX = ".next";
+
+	/**
+	 * 检测日志文件是否被删除的间隔时间（毫秒）
+	 */
+	private static final long FILE_CHECK_INTERVAL = 1000;
+
+	/**
+	 * 使用二进制日志编码器的appender，用于定时输出编码器中超过时间窗口的块
+	 */
+	private static final Set<RASPMappedFileAppender<?>> BINARY_LOG_APPENDERS =
+			new CopyOnWriteArraySet<RASPMappedFileAppender<?>>();
+
+	protected Encoder<E> encoder;
+
+	/**
+	 * 写日志锁，只保护当前写入的文件
+	 */
+	protected final ReentrantLock lock = new ReentrantLock(false);
+
+	/**
+	 * 日志切割锁，同一时间只允许一个线程切割日志
+	 */
+	private final Object rolloverLock = new Object();
+
+	private String fileName;
+
+	/**
+	 * 每次映射的文件大小
+	 */
+	private int mappedSize = DEFAULT_MAPPED_SIZE;
+
+	/**
+	 * 单个日志文件最大大小，超过后自动切割
+	 */
+	private long fileSize = Long.MAX_VALUE;
+
+	/**
+	 * 当前写入的日志文件
+	 */
+	private MappedSegment activeSegment;
+
+	/**
+	 * 预创建的下一个日志文件
+	 */
+	private MappedSegment nextSegment;
+
+	/**
+	 * 最后一次检测日志文件是否存在的时间
+	 */
+	private long lastFileCheckTime;
+
+	@Override
+	public void start() {
+		if (encoder == null) {
+			addStatus(new ErrorStatus("No encoder set for the appender named \"" + name + "\".", this));
+			return;
+		}
+
+		if (fileName == null) {
+			addError("\"File\" property not set for appender named [" + name + "].");
+			return;
+		}
+
+		lock.lock();
+
+		try {
+			File file = new File(fileName);
+
+			if (!FileUtil.createMissingParentDirectories(file)) {
+				addError("Failed to create parent directories for [" + file.getAbsolutePath() + "]");
+			}
+
+			this.activeSegment = openSegment(file, true);
+			writeHeader(activeSegment);
+			this.nextSegment = createNextSegment();
+		} catch (IOException e) {
+			addError("openFile(" + fileName + ") call failed.", e);
+			return;
+		} finally {
+			lock.unlock();
+		}
+
+		super.start();
+
+		if (encoder instanceof RASPBinaryLogEncoder) {
+			BINARY_LOG_APPENDERS.add(this);
+		}
+	}
+
+	@Override
+	public void stop() {
+		BINARY_LOG_APPENDERS.remove(this);
+
+		synchronized (rolloverLock) {
+			lock.lock();
+
+			try {
+				if (activeSegment != null) {
+					byte[] footer = encoder.footerBytes();
+
+					if (footer != null && footer.length > 0) {
+						activeSegment.write(footer);
+					}
+
+					activeSegment.close();
+				}
+
+				if (nextSegment != null) {
+					nextSegment.close();
+
+					if (!nextSegment.file.delete()) {
+						addWarn("Failed to delete [" + nextSegment.file + "]");
+					}
+				}
+			} catch (IOException e) {
+				addStatus(new ErrorStatus("Could not close mapped file for appender named [" + name + "].", this, e));
+			} finally {
+				this.activeSegment = null;
+				this.nextSegment = null;
+				lock.unlock();
+			}
+		}
+
+		super.stop();
+	}
+
+	@Override
+	protected void append(E event) {
+		if (!isStarted()) {
+			return;
+		}
+
+		if (event instanceof DeferredProcessingAware) {
+			((DeferredProcessingAware) event).prepareForDeferredProcessing();
+		}
+
+		byte[] bytes = encoder.encode(event);
+
+		if (bytes == null || bytes.length == 0) {
+			return;
+		}
+
+		boolean rollover = false;
+
+		lock.lock();
+
+		try {
+			if (activeSegment == null) {
+				return;
+			}
+
+			checkActiveFile();
+
+			activeSegment.write(bytes);
+			rollover = activeSegment.position >= fileSize;
+		} catch (IOException e) {
+			this.started = false;
+			addStatus(new ErrorStatus("IO failure in appender", this, e));
+		} finally {
+			lock.unlock();
+		}
+
+		if (rollover) {
+			rollover(false);
+		}
+	}
+
+	/**
+	 * 输出二进制日志编码器中缓存的块，由日志线程定时调用，避免日志量较小时日志长时间停留在编码器中
+	 *
+	 * @param force 是否忽略时间窗口强制输出所有编码器缓存的日志，日志线程退出和JVM退出时使用
+	 */
+	public static void flushBinaryLogAppenders(boolean force) {
+		for (RASPMappedFileAppender<?> appender : BINARY_LOG_APPENDERS) {
+			appender.flushBinaryLog(force);
+		}
+	}
+
+	private void flushBinaryLog(boolean force) {
+		boolean rollover = false;
+
+		lock.lock();
+
+		try {
+			if (activeSegment == null) {
+				return;
+			}
+
+			byte[] block = ((RASPBinaryLogEncoder) encoder).flushBlock(force);
+
+			if (block.length > 0) {
+				checkActiveFile();
+
+				activeSegment.write(block);
+				rollover = activeSegment.position >= fileSize;
+			}
+		} catch (IOException e) {
+			this.started = false;
+			addStatus(new ErrorStatus("Failed to flush binary log block for appender named [" + name + "].", this, e));
+		} finally {
+			lock.unlock();
+		}
+
+		if (rollover) {
+			rollover(false);
+		}
+	}
+
+	/**
+	 * 日志文件被删除后（如：被清理脚本删除）重新创建日志文件，最多每秒检测一次
+	 */
+	private void checkActiveFile() throws IOException {
+		long now = System.currentTimeMillis();
+
+		if (now - lastFileCheckTime < FILE_CHECK_INTERVAL) {
+			return;
+		}
+
+		this.lastFileCheckTime = now;
+
+		if (!activeSegment.file.exists()) {
+			File file = activeSegment.file;
+
+			try {
+				activeSegment.close();
+			} catch (IOException ignored) {
+			}
+
+			this.activeSegment = openSegment(file, false);
+			writeHeader(activeSegment);
+		}
+	}
+
+	private void writeHeader(MappedSegment segment) throws IOException {
+		if (segment.position == 0) {
+			byte[] header = encoder.headerBytes();
+
+			if (header != null && header.length > 0) {
+				segment.write(header);
+			}
+		}
+	}
+
+	private MappedSegment openSegment(File file, boolean append) throws IOException {
+		return new MappedSegment(file, append, mappedSize, encoder instanceof RASPBinaryLogEncoder);
+	}
+
+	private MappedSegment createNextSegment() throws IOException {
+		return openSegment(new File(fileName + NEXT_FILE_SUFFIX), false);
+	}
+
+	/**
+	 * 切割日志，将当前日志文件重命名为：日志文件名.时间戳.txt，日志为空时不切割
+	 */
+	public void rollover() {
+		rollover(true);
+	}
+
+	private void rollover(boolean force) {
+		synchronized (rolloverLock) {
+			MappedSegment oldSegment;
+			MappedSegment newSegment;
+
+			lock.lock();
+
+			try {
+				if (activeSegment == null || activeSegment.position == 0) {
+					return;
+				}
+
+				// 其他线程已经完成了自动切割
+				if (!force && activeSegment.position < fileSize) {
+					return;
+				}
+
+				// 输出编码器缓存的数据（如：二进制日志未写完的块）
+				byte[] footer = encoder.footerBytes();
+
+				if (footer != null && footer.length > 0) {
+					activeSegment.write(footer);
+				}
+
+				newSegment = nextSegment != null ? nextSegment : createNextSegment();
+				writeHeader(newSegment);
+
+				// 切换到预创建的日志文件
+				oldSegment = activeSegment;
+				this.activeSegment = newSegment;
+				this.nextSegment = null;
+			} catch (IOException e) {
+				addError("Failed to create next log file for [" + fileName + "].", e);
+				return;
+			} finally {
+				lock.unlock();
+			}
+
+			File activeFile = oldSegment.file;
+
+			try {
+				oldSegment.close();
+
+				File targetFile = new File(fileName + "." + System.nanoTime() + ".txt");
+
+				if (!activeFile.renameTo(targetFile)) {
+					addError("File [" + activeFile + "] rename failed.");
+				}
+
+				renameActiveFile(newSegment, activeFile);
+			} catch (IOException e) {
+				addError("Rollover failed for [" + fileName + "].", e);
+			}
+
+			prepareNextSegment();
+		}
+	}
+
+	/**
+	 * 在锁外预创建下一个日志文件，创建完成后再设置到nextSegment
+	 */
+	private void prepareNextSegment() {
+		File nextFile = new File(fileName + NEXT_FILE_SUFFIX);
+
+		lock.lock();
+
+		try {
+			// 重命名失败时当前仍在写入预创建的文件，不能覆盖
+			if (activeSegment == null || nextSegment != null || nextFile.equals(activeSegment.file)) {
+				return;
+			}
+		} finally {
+			lock.unlock();
+		}
+
+		try {
+			MappedSegment segment = createNextSegment();
+
+			lock.lock();
+
+			try {
+				if (activeSegment != null && nextSegment == null) {
+					this.nextSegment = segment;
+					return;
+				}
+			} finally {
+				lock.unlock();
+			}
+
+			segment.close();
+		} catch (IOException e) {
+			addError("Failed to create next log file for [" + fileName + "].", e);
+		}
+	}
+
+	/**
+	 * 将预创建的日志文件重命名为当前日志文件名，重命名只修改文件元数据，在锁内完成，避免写日志的线程误判日志文件已被删除。
+	 * 无法重命名正在使用的文件时（如：Windows），关闭后再重命名
+	 */
+	private void renameActiveFile(MappedSegment segment, File activeFile) throws IOException {
+		lock.lock();
+
+		try {
+			File nextFile = segment.file;
+
+			if (activeSegment != segment) {
+				return;
+			}
+
+			if (nextFile.renameTo(activeFile)) {
+				segment.file = activeFile;
+				return;
+			}
+
+			segment.close();
+
+			if (nextFile.renameTo(activeFile)) {
+				this.activeSegment = openSegment(activeFile, true);
+			} else {
+				addError("File [" + nextFile + "] rename failed.");
+				this.activeSegment = openSegment(nextFile, true);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 获取当前日志文件已写入的大小
+	 *
+	 * @return 日志大小
+	 */
+	public long getWrittenSize() {
+		lock.lock();
+
+		try {
+			return activeSegment != null ? activeSegment.position : 0;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public String getFile() {
+		return fileName;
+	}
+
+	public void setFile(String file) {
+		this.fileName = file != null ? file.trim() : null;
+	}
+
+	public Encoder<E> getEncoder() {
+		return encoder;
+	}
+
+	public void setEncoder(Encoder<E> encoder) {
+		this.encoder = encoder;
+	}
+
+	public int getMappedSize() {
+		return mappedSize;
+	}
+
+	public void setMappedSize(int mappedSize) {
+		if (mappedSize > 0) {
+			this.mappedSize = mappedSize;
+		}
+	}
+
+	public long getFileSize() {
+		return fileSize;
+	}
+
+	public void setFileSize(long fileSize) {
+		this.fileSize = fileSize > 0 ? fileSize : Long.MAX_VALUE;
+	}
+
+	/**
+	 * 按mappedSize分段映射的日志文件
+	 */
+	private static class MappedSegment {
+
+		/**
+		 * 日志文件
+		 */
+		private File file;
+
+		private final RandomAccessFile raf;
+
+		private final FileChannel channel;
+
+		private final int mappedSize;
+
+		private MappedByteBuffer buffer;
+
+		/**
+		 * 已写入的大小
+		 */
+		private long position;
+
+		MappedSegment(File file, boolean append, int mappedSize, boolean binary) throws IOException {
+			this.file = file;
+			this.mappedSize = mappedSize;
+			this.raf = new RandomAccessFile(file, "rw");
+			this.channel = raf.getChannel();
+
+			try {
+				if (append) {
+					this.position = binary ? findBinaryEnd() : findEnd();
+				} else {
+					channel.truncate(0);
+				}
+
+				map();
+			} catch (IOException e) {
+				raf.close();
+				throw e;
+			}
+		}
+
+		private void map() throws IOException {
+			FileUtils.unmap(buffer);
+			this.buffer = channel.map(READ_WRITE, position, mappedSize);
+		}
+
+		void write(byte[] bytes) throws IOException {
+			int offset = 0;
+
+			while (offset < bytes.length) {
+				if (!buffer.hasRemaining()) {
+					map();
+				}
+
+				int len = Math.min(buffer.remaining(), bytes.length - offset);
+
+				buffer.put(bytes, offset, len);
+				offset += len;
+				position += len;
+			}
+		}
+
+		/**
+		 * 关闭文件并截断映射时预分配的空间
+		 */
+		void close() throws IOException {
+			try {
+				FileUtils.unmap(buffer);
+				this.buffer = null;
+				channel.truncate(position);
+			} finally {
+				raf.close();
+			}
+		}
+
+		/**
+		 * 查找文件中最后一个非0字节的位置，跳过上次异常退出时未截断的预分配空间
+		 */
+		private long findEnd() throws IOException {
+			ByteBuffer block = ByteBuffer.allocate(8192);
+			long       end   = channel.size();
+
+			while (end > 0) {
+				int  len   = (int) Math.min(block.capacity(), end);
+				long start = end - len;
+
+				block.clear();
+				block.limit(len);
+
+				while (block.hasRemaining()) {
+					if (channel.read(block, start + block.position()) < 0) {
+						break;
+					}
+				}
+
+				for (int i = block.position() - 1; i >= 0; i--) {
+					if (block.get(i) != 0) {
+						return start + i + 1;
+					}
+				}
+
+				end = start;
+			}
+
+			return 0;
+		}
+
+		/**
+		 * 按块头查找二进制日志中最后一个完整块的结尾，最后一个块校验失败时（写入块的过程中异常退出）从该块开始覆盖写入；
+		 * 文件不是二进制日志时（如：开启log_binary之前的文本日志）按findEnd查找
+		 */
+		private long findBinaryEnd() throws IOException {
+			RASPBinaryLogReader reader = new RASPBinaryLogReader(file);
+
+			try {
+				RASPBinaryLogReader.Block last = null;
+				RASPBinaryLogReader.Block block;
+
+				try {
+					while ((block = reader.nextBlock()) != null) {
+						last = block;
+					}
+				} catch (IOException e) {
+					// 最后一个完整块之后是未写完的块头
+					if (last != null) {
+						return reader.getPosition();
+					}
+				}
+
+				if (last == null) {
+					return RASPBinaryLogReader.isBinaryLog(file) ? 0 : findEnd();
+				}
+
+				try {
+					reader.readPayload(last);
+				} catch (IOException e) {
+					return last.getOffset();
+				}
+
+				return reader.getPosition();
+			} finally {
+				reader.close();
+			}
+		}
+
+	}
+
+}
@@ -23,6 +23,8 @@ import ch.qos.logback.core.status.ErrorStatus;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.locks.ReentrantLock;
 
 import static ch.qos.logback.core.CoreConstants.CODES_URL;
@@ -54,6 +56,44 @@ public class RASPOutputStreamAppender<E> extends UnsynchronizedAppenderBase<E> {
 
 	boolean immediateFlush = true;
 
+	/**
+	 * 已启用group commit的appender，用于定时刷新超过时间窗口的日志
+	 */
+	private static final Set<RASPOutputStreamAppender<?>> GROUP_COMMIT_APPENDERS =
+			new CopyOnWriteArraySet<RASPOutputStreamAppender<?>>();
+
+	/**
+	 * 使用二进制日志编码器的appender，用于定时输出编码器中超过时间窗口的块
+	 */
+	private static final Set<RASPOutputStreamAppender<?>> BINARY_LOG_APPENDERS =
+			new CopyOnWriteArraySet<RASPOutputStreamAppender<?>>();
+
+	/**
+	 * 是否启用group commit，启用后日志不再逐条flush，而是累计到groupCommitSize字节或超过groupCommitWindow毫秒后统一flush，
+	 * 关闭appender和日志文件切割时会强制flush
+	 */
+	private boolean groupCommit = false;
+
+	/**
+	 * group commit最多缓存的字节数
+	 */
+	private long groupCommitSize = 64 * 1024;
+
+	/**
+	 * group commit最长缓存时间（毫秒）
+	 */
+	private long groupCommitWindow = 1000;
+
+	/**
+	 * 未flush的字节数
+	 */
+	private long pendingBytes;
+
+	/**
+	 * 最后一次flush的时间
+	 */
+	private long lastFlushTime = System.currentTimeMillis();
+
 	/**
 	 * The underlying output stream used by this appender.
 	 *
@@ -81,6 +121,14 @@ public class RASPOutputStreamAppender<E> extends UnsynchronizedAppenderBase<E> {
 		// only error free appenders should be activated
 		if (errors == 0) {
 			super.start();
+
+			if (groupCommit) {
+				GROUP_COMMIT_APPENDERS.add(this);
+			}
+
+			if (encoder instanceof RASPBinaryLogEncoder) {
+				BINARY_LOG_APPENDERS.add(this);
+			}
 		}
 	}
 
@@ -113,6 +161,8 @@ public class RASPOutputStreamAppender<E> extends UnsynchronizedAppenderBase<E> {
 	public void stop() {
 		lock.lock();
 		try {
+			GROUP_COMMIT_APPENDERS.remove(this);
+			BINARY_LOG_APPENDERS.remove(this);
 			closeOutputStream();
 			super.stop();
 		} finally {
@@ -120,6 +170,92 @@ public class RASPOutputStreamAppender<E> extends UnsynchronizedAppenderBase<E> {
 		}
 	}
 
+	/**
+	 * 立即flush缓存的日志
+	 */
+	public void flush() {
+		lock.lock();
+		try {
+			flushOutputStream();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 刷新所有超过group commit时间窗口的appender，由日志线程定时调用，避免日志量较小时日志长时间停留在缓存中
+	 */
+	public static void flushGroupCommitAppenders() {
+		flushGroupCommitAppenders(false);
+	}
+
+	/**
+	 * 刷新group commit缓存的日志
+	 *
+	 * @param force 是否忽略时间窗口强制flush所有appender，日志线程退出和JVM退出时使用
+	 */
+	public static void flushGroupCommitAppenders(boolean force) {
+		long now = System.currentTimeMillis();
+
+		for (RASPOutputStreamAppender<?> appender : GROUP_COMMIT_APPENDERS) {
+			if (force || (appender.pendingBytes > 0 && now - appender.lastFlushTime >= appender.groupCommitWindow)) {
+				appender.flush();
+			}
+		}
+	}
+
+	/**
+	 * 输出二进制日志编码器中缓存的块，由日志线程定时调用，避免日志量较小时日志长时间停留在编码器中
+	 *
+	 * @param force 是否忽略时间窗口强制输出所有编码器缓存的日志，日志线程退出和JVM退出时使用
+	 */
+	public static void flushBinaryLogAppenders(boolean force) {
+		for (RASPOutputStreamAppender<?> appender : BINARY_LOG_APPENDERS) {
+			appender.flushBinaryLog(force);
+		}
+	}
+
+	/**
+	 * 将二进制日志编码器中缓存的块写入并flush到日志文件
+	 *
+	 * @param force 是否忽略时间窗口强制输出
+	 */
+	protected void flushBinaryLog(boolean force) {
+		if (!(encoder instanceof RASPBinaryLogEncoder)) {
+			return;
+		}
+
+		lock.lock();
+		try {
+			if (this.outputStream == null) {
+				return;
+			}
+
+			byte[] block = ((RASPBinaryLogEncoder) encoder).flushBlock(force);
+
+			if (block.length > 0) {
+				this.outputStream.write(block);
+				this.pendingBytes += block.length;
+				flushOutputStream();
+			}
+		} catch (IOException ioe) {
+			this.started = false;
+			addStatus(new ErrorStatus("Failed to flush binary log block for appender named [" + name + "].", this, ioe));
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void flushOutputStream() {
+		// ResilientFileOutputStream会自行处理flush异常
+		if (this.outputStream != null && pendingBytes > 0) {
+			this.outputStream.flush();
+		}
+
+		this.pendingBytes = 0;
+		this.lastFlushTime = System.currentTimeMillis();
+	}
+
 	/**
 	 * Close the underlying {@link OutputStream}.
 	 */
@@ -130,6 +266,7 @@ public class RASPOutputStreamAppender<E> extends UnsynchronizedAppenderBase<E> {
 				encoderClose();
 				this.outputStream.close();
 				this.outputStream = null;
+				this.pendingBytes = 0;
 			} catch (IOException e) {
 				addStatus(new ErrorStatus("Could not close output stream for OutputStreamAppender.", this, e));
 			}
@@ -198,7 +335,15 @@ public class RASPOutputStreamAppender<E> extends UnsynchronizedAppenderBase<E> {
 		lock.lock();
 		try {
 			this.outputStream.write(byteArray);
-			if (immediateFlush) {
+			if (groupCommit) {
+				pendingBytes += byteArray.length;
+
+				if (pendingBytes >= groupCommitSize ||
+						System.currentTimeMillis() - lastFlushTime >= groupCommitWindow) {
+
+					flushOutputStream();
+				}
+			} else if (immediateFlush) {
 				this.outputStream.flush();
 			}
 		} finally {
@@ -255,4 +400,33 @@ public class RASPOutputStreamAppender<E> extends UnsynchronizedAppenderBase<E> {
 		this.immediateFlush = immediateFlush;
 	}
 
+	public boolean isGroupCommit() {
+		return groupCommit;
+	}
+
+	/**
+	 * 设置是否启用group commit，必须在start之前设置
+	 *
+	 * @param groupCommit 是否启用group commit
+	 */
+	public void setGroupCommit(boolean groupCommit) {
+		this.groupCommit = groupCommit;
+	}
+
+	public long getGroupCommitSize() {
+		return groupCommitSize;
+	}
+
+	public void setGroupCommitSize(long groupCommitSize) {
+		this.groupCommitSize = groupCommitSize;
+	}
+
+	public long getGroupCommitWindow() {
+		return groupCommitWindow;
+	}
+
+	public void setGroupCommitWindow(long groupCommitWindow) {
+		this.groupCommitWindow = groupCommitWindow;
+	}
+
 }
@@ -1,7 +1,56 @@
 package org.javaweb.rasp.commons.sync;
 
+import org.javaweb.rasp.commons.utils.RASPFileChunk;
+import org.javaweb.rasp.commons.utils.RASPFileChunker;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.javaweb.rasp.commons.config.RASPConfiguration.AGENT_PROPERTIES;
+
 public abstract class RASPCloudSync {
 
 	public abstract void sync();
 
+	/**
+	 * 同步间隔（秒），默认使用sync.interval配置，子类可以重写设置独立的同步间隔
+	 *
+	 * @return 同步间隔
+	 */
+	public long getSyncInterval() {
+		return AGENT_PROPERTIES.getSyncInterval();
+	}
+
+	/**
+	 * 单次同步最长执行时间（秒），超时后中断同步线程，默认使用sync_timeout配置
+	 *
+	 * @return 同步超时时间
+	 */
+	public long getSyncTimeout() {
+		return AGENT_PROPERTIES.getSyncTimeout();
+	}
+
+	/**
+	 * 同步任务名称，用于日志和执行统计
+	 *
+	 * @return 同步任务名称
+	 */
+	public String getSyncName() {
+		return getClass().getName();
+	}
+
+	/**
+	 * 将日志文件按行（二进制日志按块）划分为不超过chunkSize的分片，上传时使用RASPFileChunk.transferTo或writeTo
+	 * 直接将分片写入请求，不需要先切割为临时文件
+	 *
+	 * @param logFile   日志文件
+	 * @param chunkSize 分片最大字节数
+	 * @return 分片列表
+	 * @throws IOException IO异常
+	 */
+	protected static List<RASPFileChunk> getLogChunks(File logFile, long chunkSize) throws IOException {
+		return RASPFileChunker.chunk(logFile, chunkSize);
+	}
+
 }
@@ -0,0 +1,153 @@
+package org.javaweb.rasp.commons.sync;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 无锁有界环形队列（Dmitry Vyukov的有界MPMC队列），用于请求线程和日志写入线程之间传递数据。
+ * <p>
+ * 每个槽位保存一个序号，生产者和消费者只通过CAS竞争各自的位置计数器，入队和出队都不需要加锁，
+ * 队列已满时offer直接返回false，不会阻塞请求线程。元素不能为null。
+ *
+ * @param <E> 元素类型
+ */
+public class RASPRingBuffer<E> {
+
+	/**
+	 * 最大容量
+	 */
+	public static final int MAX_CAPACITY = 1 << 24;
+
+	private final AtomicReferenceArray<E> buffer;
+
+	/**
+	 * 槽位序号，等于入队位置时可写入，等于入队位置+1时可读取
+	 */
+	private final AtomicLongArray sequences;
+
+	private final int mask;
+
+	/**
+	 * 下一个入队位置
+	 */
+	private final AtomicLong enqueuePos = new AtomicLong();
+
+	/**
+	 * 下一个出队位置
+	 */
+	private final AtomicLong dequeuePos = new AtomicLong();
+
+	/**
+	 * 创建环形队列
+	 *
+	 * @param capacity 队列容量，会向上取整为2的幂
+	 */
+	public RASPRingBuffer(int capacity) {
+		int size = 2;
+
+		while (size < capacity && size < MAX_CAPACITY) {
+			size <<= 1;
+		}
+
+		this.mask = size - 1;
+		this.buffer = new AtomicReferenceArray<E>(size);
+		this.sequences = new AtomicLongArray(size);
+
+		for (int i = 0; i < size; i++) {
+			sequences.set(i, i);
+		}
+	}
+
+	/**
+	 * 添加元素
+	 *
+	 * @param e 元素
+	 * @return 队列已满时返回false
+	 */
+	public boolean offer(E e) {
+		if (e == null) {
+			throw new NullPointerException();
+		}
+
+		long pos = enqueuePos.get();
+		int  index;
+
+		for (; ; ) {
+			index = (int) pos & mask;
+			long diff = sequences.get(index) - pos;
+
+			if (diff == 0) {
+				if (enqueuePos.compareAndSet(pos, pos + 1)) {
+					break;
+				}
+
+				pos = enqueuePos.get();
+			} else if (diff < 0) {
+				// 槽位中的元素还没有被取走，队列已满
+				return false;
+			} else {
+				pos = enqueuePos.get();
+			}
+		}
+
+		buffer.lazySet(index, e);
+		sequences.lazySet(index, pos + 1);
+
+		return true;
+	}
+
+	/**
+	 * 取出最早添加的元素
+	 *
+	 * @return 队列为空时返回null
+	 */
+	public E poll() {
+		long pos = dequeuePos.get();
+		int  index;
+
+		for (; ; ) {
+			index = (int) pos & mask;
+			long diff = sequences.get(index) - (pos + 1);
+
+			if (diff == 0) {
+				if (dequeuePos.compareAndSet(pos, pos + 1)) {
+					break;
+				}
+
+				pos = dequeuePos.get();
+			} else if (diff < 0) {
+				// 槽位还没有写入，队列为空
+				return null;
+			} else {
+				pos = dequeuePos.get();
+			}
+		}
+
+		E e = buffer.get(index);
+		buffer.lazySet(index, null);
+		sequences.lazySet(index, pos + mask + 1);
+
+		return e;
+	}
+
+	/**
+	 * 获取队列中的元素个数，并发修改时只是一个近似值
+	 *
+	 * @return 元素个数
+	 */
+	public int size() {
+		long size = enqueuePos.get() - dequeuePos.get();
+
+		return size < 0 ? 0 : (int) Math.min(size, capacity());
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	public int capacity() {
+		return mask + 1;
+	}
+
+}
@@ -0,0 +1,503 @@
+package org.javaweb.rasp.commons.sync;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.javaweb.rasp.commons.config.RASPConfiguration.AGENT_LOGGER;
+import static org.javaweb.rasp.loader.AgentConstants.AGENT_NAME;
+
+/**
+ * RASP云端同步任务调度器：每个RASPCloudSync按各自的同步间隔独立调度，在有界线程池中并行执行，
+ * 一个同步任务执行缓慢（如：上传大量攻击日志）不会阻塞其他任务（如：拉取配置）。
+ * <p>
+ * 同步间隔会增加最多10%的随机抖动，避免大量Agent同时请求云端；同步失败或超时后按2的幂次退避，最长1小时；
+ * 超过同步超时时间的任务会被中断，任务线程退出前不会重复执行同一个任务。
+ */
+public class RASPSyncScheduler {
+
+	/**
+	 * 同步间隔随机抖动比例
+	 */
+	private static final double JITTER_RATIO = 0.1;
+
+	/**
+	 * 失败退避最长间隔
+	 */
+	private static final long MAX_BACKOFF_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+	/**
+	 * 失败退避最大倍数：2^10
+	 */
+	private static final int MAX_BACKOFF_SHIFT = 10;
+
+	/**
+	 * 暂停或任务仍在执行时的重试间隔
+	 */
+	private static final long RETRY_DELAY_MILLIS = 1000;
+
+	private static final int QUEUED = 0;
+
+	private static final int RUNNING = 1;
+
+	private static final int COMPLETED = 2;
+
+	private static final int TIMED_OUT = 3;
+
+	private final Map<RASPCloudSync, SyncTask> tasks = new ConcurrentHashMap<RASPCloudSync, SyncTask>();
+
+	/**
+	 * 调度线程，只负责按时间提交任务和检测超时，不执行同步任务
+	 */
+	private final ScheduledThreadPoolExecutor scheduler;
+
+	/**
+	 * 同步任务线程池
+	 */
+	private final ThreadPoolExecutor workers;
+
+	private final Random random = new Random();
+
+	/**
+	 * 线程池队列已满被拒绝的次数
+	 */
+	private final AtomicLong rejectedCount = new AtomicLong();
+
+	/**
+	 * 暂停时不执行同步任务（如：未配置云端地址）
+	 */
+	private volatile boolean paused = true;
+
+	/**
+	 * 创建同步任务调度器，创建后处于暂停状态，需要调用start开始执行
+	 *
+	 * @param poolSize  同步线程数
+	 * @param queueSize 等待执行的任务队列大小
+	 */
+	public RASPSyncScheduler(int poolSize, int queueSize) {
+		this.scheduler = new ScheduledThreadPoolExecutor(1, new SyncThreadFactory(AGENT_NAME + "-SyncScheduler"));
+		this.workers = new ThreadPoolExecutor(
+				poolSize, poolSize, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(queueSize),
+				new SyncThreadFactory(AGENT_NAME + "-Sync")
+		);
+
+		this.workers.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * 添加同步任务，任务按RASPCloudSync.getSyncInterval()间隔执行，重复添加时替换原任务
+	 *
+	 * @param sync 同步任务
+	 */
+	public void addTask(RASPCloudSync sync) {
+		SyncTask task    = new SyncTask(sync);
+		SyncTask oldTask = tasks.put(sync, task);
+
+		if (oldTask != null) {
+			oldTask.cancel();
+		}
+
+		schedule(task, jitter(RETRY_DELAY_MILLIS));
+	}
+
+	/**
+	 * 移除所有同步任务，执行中的任务会继续执行完成
+	 */
+	public void clear() {
+		for (SyncTask task : tasks.values()) {
+			task.cancel();
+		}
+
+		tasks.clear();
+	}
+
+	/**
+	 * 开始或恢复执行同步任务，从暂停状态恢复时立即调度所有空闲的任务
+	 */
+	public synchronized void start() {
+		if (paused) {
+			paused = false;
+
+			for (SyncTask task : tasks.values()) {
+				if (!task.running) {
+					schedule(task, jitter(RETRY_DELAY_MILLIS));
+				}
+			}
+		}
+	}
+
+	/**
+	 * 暂停执行同步任务，执行中的任务不受影响
+	 */
+	public synchronized void pause() {
+		paused = true;
+	}
+
+	/**
+	 * 移除所有同步任务并关闭线程池，中断执行中的任务，关闭后不能再使用
+	 */
+	public synchronized void shutdown() {
+		paused = true;
+		clear();
+		scheduler.shutdownNow();
+		workers.shutdownNow();
+	}
+
+	private void schedule(final SyncTask task, long delay) {
+		synchronized (task) {
+			if (task.removed) {
+				return;
+			}
+
+			if (task.scheduledFuture != null) {
+				task.scheduledFuture.cancel(false);
+			}
+
+			task.nextRunTime = System.currentTimeMillis() + delay;
+
+			try {
+				task.scheduledFuture = scheduler.schedule(new Runnable() {
+					@Override
+					public void run() {
+						dispatch(task);
+					}
+				}, delay, TimeUnit.MILLISECONDS);
+			} catch (RejectedExecutionException ignored) {
+				// 调度器已关闭
+			}
+		}
+	}
+
+	/**
+	 * 提交同步任务到线程池，在调度线程中执行
+	 */
+	private void dispatch(SyncTask task) {
+		if (task.removed) {
+			return;
+		}
+
+		// 暂停或上一次超时的任务仍未退出时稍后重试
+		if (paused || task.running) {
+			schedule(task, paused ? getInterval(task) : RETRY_DELAY_MILLIS);
+			return;
+		}
+
+		SyncRun run = new SyncRun(task);
+		task.running = true;
+
+		try {
+			run.future = workers.submit(run);
+		} catch (RejectedExecutionException e) {
+			task.running = false;
+			rejectedCount.incrementAndGet();
+			AGENT_LOGGER.warn("{}同步任务{}等待队列已满，跳过本次同步", AGENT_NAME, task.getName());
+			schedule(task, jitter(getInterval(task)));
+		}
+	}
+
+	/**
+	 * 计算下一次执行的间隔，失败时按失败次数退避
+	 */
+	private long nextDelay(SyncTask task, boolean success) {
+		long interval = getInterval(task);
+
+		if (success) {
+			task.consecutiveFailures = 0;
+
+			return jitter(interval);
+		}
+
+		int  shift = Math.min(++task.consecutiveFailures, MAX_BACKOFF_SHIFT);
+		long delay = Math.min(interval << shift, Math.max(MAX_BACKOFF_MILLIS, interval));
+
+		return jitter(delay);
+	}
+
+	private long jitter(long delay) {
+		return delay + (long) (delay * JITTER_RATIO * random.nextDouble());
+	}
+
+	private static long getInterval(SyncTask task) {
+		return TimeUnit.SECONDS.toMillis(Math.max(1, task.sync.getSyncInterval()));
+	}
+
+	private static long getTimeout(SyncTask task) {
+		return TimeUnit.SECONDS.toMillis(Math.max(1, task.sync.getSyncTimeout()));
+	}
+
+	/**
+	 * 等待执行的同步任务数
+	 *
+	 * @return 队列深度
+	 */
+	public int getQueueDepth() {
+		return workers.getQueue().size();
+	}
+
+	/**
+	 * 正在执行的同步任务数
+	 *
+	 * @return 执行中的任务数
+	 */
+	public int getActiveCount() {
+		return workers.getActiveCount();
+	}
+
+	public long getRejectedCount() {
+		return rejectedCount.get();
+	}
+
+	public boolean isPaused() {
+		return paused;
+	}
+
+	/**
+	 * 获取所有同步任务的执行统计
+	 *
+	 * @return 同步任务列表
+	 */
+	public List<SyncTask> getTasks() {
+		return new ArrayList<SyncTask>(tasks.values());
+	}
+
+	/**
+	 * 单次同步执行
+	 */
+	private class SyncRun implements Runnable {
+
+		private final SyncTask task;
+
+		private final AtomicInteger state = new AtomicInteger(QUEUED);
+
+		private volatile Future<?> future;
+
+		private volatile Future<?> timeoutFuture;
+
+		private volatile long startTime;
+
+		SyncRun(SyncTask task) {
+			this.task = task;
+		}
+
+		@Override
+		public void run() {
+			if (!state.compareAndSet(QUEUED, RUNNING)) {
+				return;
+			}
+
+			boolean success = false;
+			this.startTime = System.currentTimeMillis();
+
+			try {
+				// 超时时间从开始执行时计算，在队列中等待的时间不计入
+				this.timeoutFuture = scheduler.schedule(new SyncTimeout(this), getTimeout(task), TimeUnit.MILLISECONDS);
+
+				task.sync.sync();
+				success = true;
+			} catch (Throwable t) {
+				AGENT_LOGGER.error(AGENT_NAME + "同步任务" + task.getName() + "执行异常：" + t, t);
+			} finally {
+				long duration = System.currentTimeMillis() - startTime;
+
+				task.running = false;
+				task.recordRun(duration, success);
+
+				// 超时的任务已经在超时处理中重新调度
+				if (state.compareAndSet(RUNNING, COMPLETED)) {
+					Future<?> timeout = timeoutFuture;
+
+					if (timeout != null) {
+						timeout.cancel(false);
+					}
+
+					schedule(task, nextDelay(task, success));
+				}
+
+				AGENT_LOGGER.debug("{}同步任务{}执行完成，耗时：{}ms", AGENT_NAME, task.getName(), duration);
+			}
+		}
+
+	}
+
+	/**
+	 * 同步超时处理，在调度线程中执行
+	 */
+	private class SyncTimeout implements Runnable {
+
+		private final SyncRun run;
+
+		SyncTimeout(SyncRun run) {
+			this.run = run;
+		}
+
+		@Override
+		public void run() {
+			SyncTask task = run.task;
+
+			if (!run.state.compareAndSet(RUNNING, TIMED_OUT)) {
+				return;
+			}
+
+			// 中断执行中的同步任务，任务线程退出前不会再次执行该任务
+			Future<?> future = run.future;
+
+			if (future != null) {
+				future.cancel(true);
+			}
+
+			task.timeoutCount.incrementAndGet();
+			AGENT_LOGGER.warn("{}同步任务{}执行超时", AGENT_NAME, task.getName());
+			schedule(task, nextDelay(task, false));
+		}
+
+	}
+
+	/**
+	 * 同步任务及其执行统计
+	 */
+	public static class SyncTask {
+
+		private final RASPCloudSync sync;
+
+		private volatile boolean running;
+
+		private volatile boolean removed;
+
+		private ScheduledFuture<?> scheduledFuture;
+
+		private volatile long nextRunTime;
+
+		/**
+		 * 连续失败次数，只在调度线程或任务线程结束时修改
+		 */
+		private volatile int consecutiveFailures;
+
+		private final AtomicLong runCount = new AtomicLong();
+
+		private final AtomicLong failureCount = new AtomicLong();
+
+		private final AtomicLong timeoutCount = new AtomicLong();
+
+		private final AtomicLong totalDuration = new AtomicLong();
+
+		private volatile long lastDuration;
+
+		private volatile long maxDuration;
+
+		private volatile long lastRunTime;
+
+		SyncTask(RASPCloudSync sync) {
+			this.sync = sync;
+		}
+
+		private synchronized void cancel() {
+			this.removed = true;
+
+			if (scheduledFuture != null) {
+				scheduledFuture.cancel(false);
+			}
+		}
+
+		private void recordRun(long duration, boolean success) {
+			runCount.incrementAndGet();
+			totalDuration.addAndGet(duration);
+
+			if (!success) {
+				failureCount.incrementAndGet();
+			}
+
+			this.lastDuration = duration;
+			this.lastRunTime = System.currentTimeMillis();
+
+			if (duration > maxDuration) {
+				this.maxDuration = duration;
+			}
+		}
+
+		public String getName() {
+			return sync.getSyncName();
+		}
+
+		public RASPCloudSync getSync() {
+			return sync;
+		}
+
+		public boolean isRunning() {
+			return running;
+		}
+
+		public long getNextRunTime() {
+			return nextRunTime;
+		}
+
+		public long getLastRunTime() {
+			return lastRunTime;
+		}
+
+		public int getConsecutiveFailures() {
+			return consecutiveFailures;
+		}
+
+		public long getRunCount() {
+			return runCount.get();
+		}
+
+		public long getFailureCount() {
+			return failureCount.get();
+		}
+
+		public long getTimeoutCount() {
+			return timeoutCount.get();
+		}
+
+		/**
+		 * 最近一次执行耗时（毫秒）
+		 *
+		 * @return 执行耗时
+		 */
+		public long getLastDuration() {
+			return lastDuration;
+		}
+
+		public long getMaxDuration() {
+			return maxDuration;
+		}
+
+		/**
+		 * 平均执行耗时（毫秒）
+		 *
+		 * @return 平均耗时
+		 */
+		public long getAverageDuration() {
+			long count = runCount.get();
+
+			return count > 0 ? totalDuration.get() / count : 0;
+		}
+
+	}
+
+	private static class SyncThreadFactory implements ThreadFactory {
+
+		private final String name;
+
+		private final AtomicInteger threadNumber = new AtomicInteger();
+
+		SyncThreadFactory(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, name + "-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+
+			return thread;
+		}
+
+	}
+
+}
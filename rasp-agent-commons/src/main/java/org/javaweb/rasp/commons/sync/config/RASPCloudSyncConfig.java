@@ -1,34 +1,99 @@
 package org.javaweb.rasp.commons.sync.config;
 
 import org.javaweb.rasp.commons.sync.RASPCloudSync;
+import org.javaweb.rasp.commons.sync.RASPSyncScheduler;
 import org.javaweb.rasp.commons.sync.RASPThreadSyncConfig;
 
-import java.util.HashSet;
-import java.util.Set;
-
-import static java.util.Collections.synchronizedSet;
 import static org.javaweb.rasp.commons.config.RASPConfiguration.AGENT_LOGGER;
 import static org.javaweb.rasp.commons.config.RASPConfiguration.AGENT_PROPERTIES;
 import static org.javaweb.rasp.loader.AgentConstants.AGENT_NAME;
 import static org.javaweb.rasp.commons.utils.StringUtils.startWithIgnoreCase;
 
+/**
+ * RASP云端数据同步：同步任务由RASPSyncScheduler按各自的间隔在线程池中并行执行，
+ * 定时调用dataSynchronization时只检测云端地址配置并控制调度器的启停。
+ * <p>
+ * 调度器在第一次添加同步任务时创建，同步配置停止运行（setRunning(false)）时暂停，Agent停止时需要调用shutdown关闭线程池。
+ */
 public class RASPCloudSyncConfig extends RASPThreadSyncConfig {
 
 	/**
-	 * RASP数据同步配置列表
+	 * 同步任务等待队列大小
 	 */
-	private static final Set<RASPCloudSync> RASP_DATA_SYNC_LIST = synchronizedSet(new HashSet<RASPCloudSync>());
+	private static final int SYNC_QUEUE_SIZE = 64;
+
+	/**
+	 * RASP数据同步任务调度器，第一次使用时创建
+	 */
+	private static volatile RASPSyncScheduler syncScheduler;
 
 	public RASPCloudSyncConfig(long syncInterval, boolean running) {
 		super(syncInterval, running);
 	}
 
 	public static void addRASPDataSync(RASPCloudSync sync) {
-		RASP_DATA_SYNC_LIST.add(sync);
+		getSyncScheduler().addTask(sync);
 	}
 
 	public static void clearRASPDataSync() {
-		RASP_DATA_SYNC_LIST.clear();
+		RASPSyncScheduler scheduler = syncScheduler;
+
+		if (scheduler != null) {
+			scheduler.clear();
+		}
+	}
+
+	/**
+	 * 获取同步任务调度器，不存在时创建
+	 *
+	 * @return 同步任务调度器
+	 */
+	public static RASPSyncScheduler getSyncScheduler() {
+		RASPSyncScheduler scheduler = syncScheduler;
+
+		if (scheduler == null) {
+			synchronized (RASPCloudSyncConfig.class) {
+				if (syncScheduler == null) {
+					syncScheduler = new RASPSyncScheduler(AGENT_PROPERTIES.getSyncPoolSize(), SYNC_QUEUE_SIZE);
+				}
+
+				scheduler = syncScheduler;
+			}
+		}
+
+		return scheduler;
+	}
+
+	/**
+	 * 停止所有同步任务并关闭调度器线程池，Agent停止时调用；之后再添加同步任务时会创建新的调度器
+	 */
+	public static void shutdown() {
+		RASPSyncScheduler scheduler;
+
+		synchronized (RASPCloudSyncConfig.class) {
+			scheduler = syncScheduler;
+			syncScheduler = null;
+		}
+
+		if (scheduler != null) {
+			scheduler.shutdown();
+		}
+	}
+
+	/**
+	 * 停止运行时暂停调度器，恢复运行后在下一次dataSynchronization时重新开始执行同步任务
+	 *
+	 * @param running 是否运行
+	 */
+	@Override
+	public void setRunning(boolean running) {
+		super.setRunning(running);
+
+		RASPSyncScheduler scheduler = syncScheduler;
+
+		if (!running && scheduler != null) {
+			scheduler.pause();
+		}
 	}
 
 	/**
@@ -36,20 +101,45 @@ public class RASPCloudSyncConfig extends RASPThreadSyncConfig {
 	 */
 	@Override
 	public void dataSynchronization() {
+		// 未添加同步任务时不创建调度器
+		RASPSyncScheduler scheduler = syncScheduler;
+
+		if (scheduler == null) {
+			return;
+		}
+
+		if (!isRunning()) {
+			scheduler.pause();
+			return;
+		}
+
 		// 获取API同步地址
 		String configApi = AGENT_PROPERTIES.getApiUrl();
 
 		// 检测客户端是否配置了同步地址
 		if (!startWithIgnoreCase(configApi, "http")) {
 			AGENT_LOGGER.debug("{}未配置通讯地址，数据同步未启动...", AGENT_NAME);
+			scheduler.pause();
 			return;
 		}
 
-		AGENT_LOGGER.info("{}数据同步开始...", AGENT_NAME);
+		if (scheduler.isPaused()) {
+			AGENT_LOGGER.info("{}数据同步开始...", AGENT_NAME);
+			scheduler.start();
+		}
 
-		for (RASPCloudSync sync : RASP_DATA_SYNC_LIST) {
-			sync.sync();
+		for (RASPSyncScheduler.SyncTask task : scheduler.getTasks()) {
+			AGENT_LOGGER.debug(
+					"{}同步任务：{}，执行次数：{}，失败次数：{}，超时次数：{}，平均耗时：{}ms，最长耗时：{}ms",
+					new Object[]{AGENT_NAME, task.getName(), task.getRunCount(), task.getFailureCount(),
+							task.getTimeoutCount(), task.getAverageDuration(), task.getMaxDuration()}
+			);
 		}
+
+		AGENT_LOGGER.debug(
+				"{}同步任务等待队列：{}，执行中：{}，队列已满跳过：{}", new Object[]{AGENT_NAME,
+						scheduler.getQueueDepth(), scheduler.getActiveCount(), scheduler.getRejectedCount()}
+		);
 	}
 
 }
@@ -2,15 +2,35 @@ package org.javaweb.rasp.commons.sync.config;
 
 import org.javaweb.rasp.commons.log.RASPLog;
 import org.javaweb.rasp.commons.log.RASPLogData;
+import org.javaweb.rasp.commons.log.RASPLogOverflowPolicy;
+import org.javaweb.rasp.commons.log.RASPLogQueue;
+import org.javaweb.rasp.commons.logback.RASPMappedFileAppender;
+import org.javaweb.rasp.commons.logback.RASPOutputStreamAppender;
 import org.javaweb.rasp.commons.sync.RASPThreadSyncConfig;
 import org.javaweb.rasp.commons.utils.JsonUtils;
+import org.javaweb.rasp.commons.utils.RASPJsonWriter;
 import org.slf4j.Logger;
 
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
+import static org.javaweb.rasp.commons.config.RASPConfiguration.AGENT_LOGGER;
 import static org.javaweb.rasp.commons.config.RASPConfiguration.AGENT_PROPERTIES;
+import static org.javaweb.rasp.commons.constants.RASPConstants.ATTACK_LOG;
+import static org.javaweb.rasp.commons.log.RASPLogOverflowPolicy.DROP_NEW;
+import static org.javaweb.rasp.commons.log.RASPLogOverflowPolicy.SAMPLE;
 import static org.javaweb.rasp.commons.utils.EncryptUtils.enContent;
+import static org.javaweb.rasp.loader.AgentConstants.AGENT_NAME;
 
+/**
+ * RASP日志异步写入：请求线程只将日志放入无锁环形队列，JSON序列化、加密和写文件都在独立的日志线程中批量完成，
+ * 访问日志和调用链日志的队列已满时按log_overflow_policy配置丢弃日志；攻击日志不会被丢弃，队列已满时在请求线程中同步写入。
+ * <p>
+ * 日志队列按应用和日志类型分片，日志线程轮询所有分片，一个应用的日志过多时不会影响其他应用的日志。
+ */
 public class RASPLoggerSyncConfig extends RASPThreadSyncConfig {
 
 	public RASPLoggerSyncConfig(long syncInterval, boolean running) {
@@ -18,45 +38,346 @@ public class RASPLoggerSyncConfig extends RASPThreadSyncConfig {
 	}
 
 	/**
-	 * 设置内存中最大放置的RASP日志数
+	 * 日志线程每批最多处理的日志数
 	 */
-	private static final int MAX_LOG_COUNT = 1000;
+	private static final int BATCH_SIZE = 128;
 
 	/**
-	 * RASP日志队列
+	 * 日志线程空闲时的最长等待时间，同时也是检测group commit时间窗口的间隔
 	 */
-	protected static ArrayBlockingQueue<RASPLogData> raspLogQueue = new ArrayBlockingQueue<RASPLogData>(MAX_LOG_COUNT);
+	private static final long IDLE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+	/**
+	 * RASP日志队列，每个分片的大小由log_queue_size配置，修改后需要重启生效
+	 */
+	protected static final RASPLogQueue raspLogQueue = new RASPLogQueue(AGENT_PROPERTIES.getLogQueueSize());
+
+	/**
+	 * 添加到队列的日志数
+	 */
+	private static final AtomicLong OFFERED_COUNT = new AtomicLong();
+
+	/**
+	 * 已写入的日志数
+	 */
+	private static final AtomicLong WRITTEN_COUNT = new AtomicLong();
+
+	/**
+	 * 队列已满丢弃的日志数
+	 */
+	private static final AtomicLong DROPPED_COUNT = new AtomicLong();
+
+	/**
+	 * 日志写入线程
+	 */
+	private static volatile Thread writerThread;
+
+	/**
+	 * 读取日志队列的锁，日志线程、定时同步任务和shutdown不能并发读取队列（RASPLogQueue只支持单个消费者）
+	 */
+	private static final Object DRAIN_LOCK = new Object();
+
+	/**
+	 * 日志写入线程是否在等待新日志
+	 */
+	private static volatile boolean writerWaiting;
+
+	/**
+	 * 日志写入线程是否已被手动停止，停止后不再自动启动
+	 */
+	private static volatile boolean writerStopped;
+
+	/**
+	 * JVM退出时等待日志线程写入剩余日志的最长时间
+	 */
+	private static final long SHUTDOWN_TIMEOUT_MILLIS = 5000;
+
+	/**
+	 * 是否已注册JVM退出时写入日志的shutdown hook
+	 */
+	private static boolean shutdownHookRegistered;
 
 	public static void addRASPLogData(RASPLogData log) {
-		if (raspLogQueue.size() < MAX_LOG_COUNT) {
-			raspLogQueue.offer(log);
-		} else {
-			writeLog(log);
+		if (writerThread == null && !writerStopped) {
+			startWriter();
+		}
+
+		RASPLogQueue.Shard shard = raspLogQueue.getShard(log);
+
+		if (!shard.offer(log) && !handleOverflow(shard, log)) {
+			return;
+		}
+
+		OFFERED_COUNT.incrementAndGet();
+
+		if (writerWaiting) {
+			Thread thread = writerThread;
+
+			if (thread != null) {
+				LockSupport.unpark(thread);
+			}
+		}
+	}
+
+	/**
+	 * 分片队列已满时按溢出策略处理日志，只会丢弃同一个分片中的日志，攻击日志在当前线程中同步写入
+	 *
+	 * @param shard 日志分片
+	 * @param log   新添加的日志
+	 * @return 新日志是否已添加到队列
+	 */
+	private static boolean handleOverflow(RASPLogQueue.Shard shard, RASPLogData log) {
+		long count = shard.incrementOverflowCount();
+
+		// 攻击日志不能丢弃
+		if (ATTACK_LOG.equals(shard.getLogType())) {
+			try {
+				writeLog(log, AGENT_PROPERTIES.getRc4Key());
+			} catch (Throwable t) {
+				AGENT_LOGGER.error(AGENT_NAME + "写入日志异常：" + t, t);
+			}
+
+			return false;
+		}
+
+		RASPLogOverflowPolicy policy = AGENT_PROPERTIES.getLogOverflowPolicy();
+
+		if (policy == DROP_NEW || (policy == SAMPLE && count % AGENT_PROPERTIES.getLogSampleRate() != 0)) {
+			dropped(shard);
+			return false;
+		}
+
+		// 丢弃最早的日志后重新添加，并发添加时可能仍然失败，此时丢弃新日志
+		if (shard.poll() != null) {
+			dropped(shard);
+		}
+
+		if (shard.offer(log)) {
+			return true;
+		}
+
+		dropped(shard);
+
+		return false;
+	}
+
+	private static void dropped(RASPLogQueue.Shard shard) {
+		shard.incrementDroppedCount();
+		DROPPED_COUNT.incrementAndGet();
+	}
+
+	/**
+	 * 启动日志写入线程
+	 */
+	public static synchronized void startWriter() {
+		writerStopped = false;
+
+		if (writerThread != null) {
+			return;
+		}
+
+		registerShutdownHook();
+
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				Thread current = Thread.currentThread();
+
+				while (writerThread == current) {
+					if (drain(BATCH_SIZE) == 0) {
+						writerWaiting = true;
+
+						// 设置等待标识后再次检测队列，避免错过请求线程的唤醒
+						if (raspLogQueue.isEmpty()) {
+							LockSupport.parkNanos(IDLE_WAIT_NANOS);
+						}
+
+						writerWaiting = false;
+
+						// 队列空闲时输出超过时间窗口的二进制日志块，并刷新超过group commit时间窗口的日志
+						flushAppenders(false);
+					}
+				}
+
+				// 线程停止前写入队列中剩余的日志，并强制flush所有二进制日志块和group commit缓存的日志
+				drain(Integer.MAX_VALUE);
+				flushAppenders(true);
+			}
+		}, AGENT_NAME + "-LogWriter");
+
+		thread.setDaemon(true);
+		writerThread = thread;
+		thread.start();
+	}
+
+	/**
+	 * 注册JVM退出时写入日志的shutdown hook（log_flush_on_shutdown=false时不注册），日志线程是守护线程，
+	 * 不注册时JVM退出会丢失队列中和group commit缓存中的日志
+	 */
+	private static void registerShutdownHook() {
+		if (shutdownHookRegistered || !AGENT_PROPERTIES.isLogFlushOnShutdown()) {
+			return;
+		}
+
+		try {
+			Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+				@Override
+				public void run() {
+					shutdown();
+				}
+			}, AGENT_NAME + "-LogShutdown"));
+
+			shutdownHookRegistered = true;
+		} catch (IllegalStateException ignored) {
+			// JVM正在退出
 		}
 	}
 
-	private static void writeLog(RASPLogData logData) {
+	/**
+	 * 停止日志线程并等待线程写入剩余的日志，然后强制flush所有缓存的日志
+	 */
+	public static void shutdown() {
+		Thread thread = writerThread;
+
+		stopWriter();
+
+		if (thread != null) {
+			try {
+				thread.join(SHUTDOWN_TIMEOUT_MILLIS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		// 日志线程已退出时写入停止后添加到队列中的日志，日志线程超时未退出时不等待日志线程释放队列
+		if (thread == null || !thread.isAlive()) {
+			drain(Integer.MAX_VALUE);
+		}
+
+		flushAppenders(true);
+	}
+
+	/**
+	 * 输出二进制日志编码器缓存的块，然后flush group commit缓存的日志
+	 *
+	 * @param force 是否忽略时间窗口强制输出所有缓存的日志
+	 */
+	private static void flushAppenders(boolean force) {
+		RASPOutputStreamAppender.flushBinaryLogAppenders(force);
+		RASPMappedFileAppender.flushBinaryLogAppenders(force);
+		RASPOutputStreamAppender.flushGroupCommitAppenders(force);
+	}
+
+	/**
+	 * 停止日志写入线程，线程退出前会写入队列中剩余的日志
+	 */
+	public static synchronized void stopWriter() {
+		Thread thread = writerThread;
+
+		writerStopped = true;
+
+		if (thread != null) {
+			writerThread = null;
+			LockSupport.unpark(thread);
+		}
+	}
+
+	/**
+	 * 批量写入队列中的日志，同一时间只有一个线程可以读取队列
+	 *
+	 * @param max 最多写入的日志数
+	 * @return 写入的日志数
+	 */
+	private static int drain(int max) {
+		String            rc4Key = AGENT_PROPERTIES.getRc4Key();
+		List<RASPLogData> batch  = new ArrayList<RASPLogData>(Math.min(max, BATCH_SIZE));
+		int               count  = 0;
+
+		synchronized (DRAIN_LOCK) {
+			while (count < max) {
+				int n = raspLogQueue.drainTo(batch, Math.min(max - count, BATCH_SIZE));
+
+				if (n == 0) {
+					break;
+				}
+
+				for (RASPLogData log : batch) {
+					try {
+						writeLog(log, rc4Key);
+					} catch (Throwable t) {
+						AGENT_LOGGER.error(AGENT_NAME + "写入日志异常：" + t, t);
+					}
+				}
+
+				batch.clear();
+				count += n;
+			}
+		}
+
+		return count;
+	}
+
+	private static void writeLog(RASPLogData logData, String rc4Key) {
 		Logger  logger = logData.getLogger();
 		RASPLog log    = logData.getRaspLog();
 
 		if (logger != null && log != null) {
-			String json = JsonUtils.toJson(log);
+			String json;
 
 			if (logData.isEncrypt()) {
-				json = enContent(json, AGENT_PROPERTIES.getRc4Key());
+				RASPJsonWriter writer = JsonUtils.writeJson(log);
+
+				// 直接加密JSON的UTF-8字节，不创建中间字符串
+				if (writer != null) {
+					json = enContent(writer.getBuffer(), 0, writer.size(), rc4Key);
+				} else {
+					json = enContent(JsonUtils.toJson(log), rc4Key);
+				}
+			} else {
+				json = JsonUtils.toJson(log);
 			}
 
 			logger.info(json);
+			WRITTEN_COUNT.incrementAndGet();
 		}
 	}
 
+	public static long getOfferedCount() {
+		return OFFERED_COUNT.get();
+	}
+
+	public static long getWrittenCount() {
+		return WRITTEN_COUNT.get();
+	}
+
+	public static long getDroppedCount() {
+		return DROPPED_COUNT.get();
+	}
+
+	public static int getQueueSize() {
+		return raspLogQueue.size();
+	}
+
+	/**
+	 * 获取所有日志队列分片，用于统计每个应用每种日志的队列长度和丢弃的日志数
+	 *
+	 * @return 日志队列分片
+	 */
+	public static List<RASPLogQueue.Shard> getQueueShards() {
+		return raspLogQueue.getShards();
+	}
+
+	/**
+	 * 日志写入线程未运行时（如：已停止），由定时同步任务写入队列中的日志；
+	 * stopWriter后日志线程可能仍在写入剩余的日志，drain会等待日志线程释放队列
+	 */
 	@Override
 	public void dataSynchronization() {
-		RASPLogData log;
-
-		while ((log = raspLogQueue.poll()) != null) {
-			writeLog(log);
+		if (writerThread == null) {
+			drain(Integer.MAX_VALUE);
 		}
+
+		flushAppenders(false);
 	}
 
 }
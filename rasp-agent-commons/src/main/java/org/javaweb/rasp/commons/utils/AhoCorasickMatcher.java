@@ -0,0 +1,331 @@
+package org.javaweb.rasp.commons.utils;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
+
+/**
+ * 基于Aho-Corasick自动机的多模式字节匹配器，用于在分段到达的请求体中查找恶意关键字（如：@type、&lt;!ENTITY）。
+ * <p>
+ * 构建时将失败指针折叠为完整的状态转移表（DFA），每个字节只需要一次查表，匹配时间复杂度和关键字个数无关；
+ * 字节先映射到关键字中出现过的字节类别，状态转移表大小为：状态数 * 字节类别数。
+ * 关键字使用UTF-8编码，ignoreCase只忽略ASCII字母大小写。
+ * <p>
+ * 匹配器创建后不可修改，可以在多个线程中共享；匹配状态保存在Scanner中，同一个Scanner可以跨多个数据块匹配，
+ * 跨数据块边界的关键字也能被匹配到。在同一个位置结尾的所有关键字（如：&lt;!ENTITY和ENTITY、重复的关键字）都会被依次返回。
+ */
+public class AhoCorasickMatcher {
+
+	private final String[] patterns;
+
+	/**
+	 * 字节到字节类别的映射，类别0表示未在关键字中出现的字节
+	 */
+	private final int[] byteClasses = new int[256];
+
+	/**
+	 * 字节类别数
+	 */
+	private final int classCount;
+
+	/**
+	 * 状态转移表：delta[state * classCount + byteClass]
+	 */
+	private final int[] delta;
+
+	/**
+	 * 到达该状态时匹配到的第一个关键字下标（包括后缀关键字），-1表示没有匹配
+	 */
+	private final int[] matches;
+
+	/**
+	 * 以该状态结尾的第一个关键字下标（不包括后缀关键字），-1表示没有
+	 */
+	private final int[] outputs;
+
+	/**
+	 * 和该关键字相同（忽略大小写时按忽略大小写比较）的下一个关键字下标，-1表示没有
+	 */
+	private final int[] nextOutputs;
+
+	/**
+	 * 该状态的后缀状态中最长的有关键字结尾的状态，-1表示没有
+	 */
+	private final int[] dictLinks;
+
+	/**
+	 * 创建多模式匹配器，空关键字会被忽略
+	 *
+	 * @param patterns   关键字
+	 * @param ignoreCase 是否忽略ASCII字母大小写
+	 */
+	public AhoCorasickMatcher(String[] patterns, boolean ignoreCase) {
+		this.patterns = patterns.clone();
+
+		byte[][] bytes      = new byte[patterns.length][];
+		int      totalBytes = 0;
+		int      classes    = 1;
+
+		for (int i = 0; i < patterns.length; i++) {
+			bytes[i] = getBytes(patterns[i]);
+			totalBytes += bytes[i].length;
+
+			for (byte b : bytes[i]) {
+				int c = b & 0xff;
+
+				if (byteClasses[c] == 0) {
+					byteClasses[c] = classes;
+
+					if (ignoreCase && isAsciiLetter(c)) {
+						byteClasses[c ^ 0x20] = classes;
+					}
+
+					classes++;
+				}
+			}
+		}
+
+		this.classCount = classes;
+
+		// 构建字典树，-1表示没有子节点
+		int[] trie   = new int[(totalBytes + 1) * classCount];
+		int[] output = new int[totalBytes + 1];
+		int[] last   = new int[totalBytes + 1];
+		int   states = 1;
+
+		this.nextOutputs = new int[patterns.length];
+
+		Arrays.fill(trie, -1);
+		Arrays.fill(output, -1);
+		Arrays.fill(nextOutputs, -1);
+
+		for (int i = 0; i < bytes.length; i++) {
+			if (bytes[i].length == 0) continue;
+
+			int state = 0;
+
+			for (byte b : bytes[i]) {
+				int index = state * classCount + byteClasses[b & 0xff];
+
+				if (trie[index] == -1) {
+					trie[index] = states++;
+				}
+
+				state = trie[index];
+			}
+
+			// 相同的关键字按下标顺序链接
+			if (output[state] == -1) {
+				output[state] = i;
+			} else {
+				nextOutputs[last[state]] = i;
+			}
+
+			last[state] = i;
+		}
+
+		this.delta = Arrays.copyOf(trie, states * classCount);
+		this.outputs = Arrays.copyOf(output, states);
+		this.matches = Arrays.copyOf(output, states);
+		this.dictLinks = new int[states];
+
+		Arrays.fill(dictLinks, -1);
+
+		buildFailureTransitions(states);
+	}
+
+	/**
+	 * 按广度优先顺序计算失败指针和后缀输出链接，并将失败指针折叠到状态转移表中
+	 */
+	private void buildFailureTransitions(int states) {
+		int[] fail  = new int[states];
+		int[] queue = new int[states];
+		int   head  = 0;
+		int   tail  = 0;
+
+		for (int c = 0; c < classCount; c++) {
+			int next = delta[c];
+
+			if (next == -1) {
+				delta[c] = 0;
+			} else {
+				fail[next] = 0;
+				queue[tail++] = next;
+			}
+		}
+
+		while (head < tail) {
+			int state = queue[head++];
+
+			int suffix = fail[state];
+
+			// 后缀输出链接指向最长的有关键字结尾的后缀状态，失败状态的深度更小，已经计算过
+			dictLinks[state] = outputs[suffix] != -1 ? suffix : dictLinks[suffix];
+
+			// 当前状态没有匹配时继承失败状态的匹配（后缀关键字）
+			if (matches[state] == -1) {
+				matches[state] = matches[suffix];
+			}
+
+			for (int c = 0; c < classCount; c++) {
+				int index = state * classCount + c;
+				int next  = delta[index];
+				int jump  = delta[fail[state] * classCount + c];
+
+				if (next == -1) {
+					delta[index] = jump;
+				} else {
+					fail[next] = jump;
+					queue[tail++] = next;
+				}
+			}
+		}
+	}
+
+	private static boolean isAsciiLetter(int c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+	}
+
+	private static byte[] getBytes(String pattern) {
+		try {
+			return pattern != null ? pattern.getBytes("UTF-8") : new byte[0];
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * 获取关键字
+	 *
+	 * @param index 关键字下标
+	 * @return 关键字
+	 */
+	public String getPattern(int index) {
+		return patterns[index];
+	}
+
+	/**
+	 * 检测数据中是否包含任意一个关键字
+	 *
+	 * @param b   数据
+	 * @param off 数据偏移量
+	 * @param len 数据长度
+	 * @return 是否包含关键字
+	 */
+	public boolean contains(byte[] b, int off, int len) {
+		return newScanner().scan(b, off, len) != -1;
+	}
+
+	/**
+	 * 创建匹配状态对象，每个请求（数据流）使用一个Scanner
+	 *
+	 * @return Scanner
+	 */
+	public Scanner newScanner() {
+		return new Scanner();
+	}
+
+	/**
+	 * 保存匹配状态的扫描器，非线程安全
+	 */
+	public class Scanner {
+
+		private int state;
+
+		private int match = -1;
+
+		/**
+		 * 当前匹配的关键字所在的输出状态，-1表示当前位置没有未返回的关键字
+		 */
+		private int matchState = -1;
+
+		/**
+		 * 从当前状态继续扫描数据，找到一个关键字后返回；同一个位置结尾的多个关键字分多次返回，
+		 * 上一次匹配的位置还有未返回的关键字时直接返回off
+		 *
+		 * @param b   数据
+		 * @param off 数据偏移量
+		 * @param len 数据长度
+		 * @return 匹配到的关键字结尾的下一个字节在b中的位置，没有匹配时返回-1；
+		 * 需要继续查找后续关键字时从返回的位置继续扫描
+		 */
+		public int scan(byte[] b, int off, int len) {
+			if (matchState != -1 && nextMatch()) {
+				return off;
+			}
+
+			int   s       = state;
+			int   end     = off + len;
+			int[] table   = delta;
+			int[] classes = byteClasses;
+			int   count   = classCount;
+
+			for (int i = off; i < end; i++) {
+				s = table[s * count + classes[b[i] & 0xff]];
+
+				if (matches[s] != -1) {
+					state = s;
+					matchState = outputs[s] != -1 ? s : dictLinks[s];
+					match = outputs[matchState];
+
+					return i + 1;
+				}
+			}
+
+			state = s;
+
+			return -1;
+		}
+
+		/**
+		 * 查找当前位置结尾的下一个关键字：先查找相同的关键字，再沿后缀输出链接查找更短的关键字
+		 *
+		 * @return 是否还有未返回的关键字
+		 */
+		private boolean nextMatch() {
+			int next = nextOutputs[match];
+
+			if (next == -1) {
+				matchState = dictLinks[matchState];
+
+				if (matchState == -1) {
+					return false;
+				}
+
+				next = outputs[matchState];
+			}
+
+			match = next;
+
+			return true;
+		}
+
+		/**
+		 * 获取最后一次匹配到的关键字下标
+		 *
+		 * @return 关键字下标，没有匹配时返回-1
+		 */
+		public int getMatch() {
+			return match;
+		}
+
+		/**
+		 * 获取最后一次匹配到的关键字
+		 *
+		 * @return 关键字，没有匹配时返回null
+		 */
+		public String getMatchPattern() {
+			return match != -1 ? patterns[match] : null;
+		}
+
+		/**
+		 * 重置匹配状态，用于匹配新的数据流
+		 */
+		public void reset() {
+			this.state = 0;
+			this.match = -1;
+			this.matchState = -1;
+		}
+
+	}
+
+}
@@ -91,6 +91,11 @@ public class AntPathMatcherUtils {
 
 	private final Map<String, AntPathStringMatcher> stringMatcherCache = new ConcurrentHashMap<String, AntPathStringMatcher>(256);
 
+	/**
+	 * 默认的共享匹配器，pathMatch和pathMatchStart共用同一个实例以复用规则缓存
+	 */
+	private static final AntPathMatcherUtils DEFAULT_MATCHER = new AntPathMatcherUtils();
+
 	/**
 	 * Create a new instance with the {@link #DEFAULT_PATH_SEPARATOR}.
 	 */
@@ -175,17 +180,44 @@ public class AntPathMatcherUtils {
 		return false;
 	}
 
+	/**
+	 * 使用默认的共享匹配器匹配路径，共享匹配器会缓存规则的分词结果和正则表达式，缓存使用ConcurrentHashMap线程安全
+	 *
+	 * @param pattern Ant路径规则
+	 * @param path    路径
+	 * @return 是否匹配
+	 */
 	public static boolean pathMatch(String pattern, String path) {
-		if (isNotEmpty(path) && isNotEmpty(path)) {
-			return new AntPathMatcherUtils().doMatch(pattern, path, true, null);
+		if (isNotEmpty(pattern) && isNotEmpty(path)) {
+			return DEFAULT_MATCHER.doMatch(pattern, path, true, null);
 		}
 
 		return false;
 	}
 
 	public static boolean pathMatchStart(String pattern, String path) {
-		if (isNotEmpty(path) && isNotEmpty(path)) {
-			return new AntPathMatcherUtils().doMatch(pattern, path, false, null);
+		if (isNotEmpty(pattern) && isNotEmpty(path)) {
+			return DEFAULT_MATCHER.doMatch(pattern, path, false, null);
+		}
+
+		return false;
+	}
+
+	/**
+	 * 检测路径是否匹配任意一条规则，逐条调用pathMatch；同一组规则需要反复匹配时应创建并持有AntPathPatternSet
+	 *
+	 * @param patterns Ant路径规则
+	 * @param path     路径
+	 * @return 是否匹配
+	 * @see AntPathPatternSet
+	 */
+	public static boolean pathMatchAny(String[] patterns, String path) {
+		if (patterns != null && isNotEmpty(path)) {
+			for (String pattern : patterns) {
+				if (pathMatch(pattern, path)) {
+					return true;
+				}
+			}
 		}
 
 		return false;
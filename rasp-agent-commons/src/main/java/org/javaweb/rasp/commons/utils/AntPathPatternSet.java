@@ -0,0 +1,299 @@
+package org.javaweb.rasp.commons.utils;
+
+import org.javaweb.rasp.commons.utils.AntPathMatcherUtils.AntPathStringMatcher;
+
+import java.util.*;
+
+import static org.javaweb.rasp.commons.utils.AntPathMatcherUtils.DEFAULT_PATH_SEPARATOR;
+import static org.javaweb.rasp.commons.utils.StringUtils.tokenizeToStringArray;
+
+/**
+ * 预编译的Ant路径规则集合，将多条Ant规则按路径层级编译成一棵字典树，匹配请求路径时只需要遍历一次路径，
+ * 不再逐条调用AntPathMatcherUtils.pathMatch，匹配结果和逐条调用pathMatch完全一致。
+ * <p>
+ * 字典树的每个节点包含：普通目录的HashMap子节点、包含"*"、"?"、"{xx}"通配符目录的子节点列表和"**"子节点，
+ * 匹配时同时跟踪所有可能匹配的节点（NFA），时间复杂度和路径层级相关，和规则条数无关。
+ * <p>
+ * 编译规则集合的开销较大，调用方需要创建并持有编译后的对象（如：RASPAppProperties中的白名单和黑名单规则），
+ * 规则变化时重新创建。对象创建后不可修改，可以在多个线程中共享。
+ */
+public class AntPathPatternSet {
+
+	private static final String DOUBLE_WILDCARD = "**";
+
+	/**
+	 * 路径分隔符
+	 */
+	private final String pathSeparator;
+
+	/**
+	 * 所有规则
+	 */
+	private final String[] patterns;
+
+	/**
+	 * 以路径分隔符开头的规则
+	 */
+	private final Node absoluteRoot = new Node();
+
+	/**
+	 * 不以路径分隔符开头的规则
+	 */
+	private final Node relativeRoot = new Node();
+
+	public AntPathPatternSet(Collection<String> patterns) {
+		this(patterns, DEFAULT_PATH_SEPARATOR);
+	}
+
+	/**
+	 * 编译Ant路径规则集合
+	 *
+	 * @param patterns      Ant路径规则，忽略空规则
+	 * @param pathSeparator 路径分隔符
+	 */
+	public AntPathPatternSet(Collection<String> patterns, String pathSeparator) {
+		List<String> list = new ArrayList<String>();
+
+		this.pathSeparator = pathSeparator != null ? pathSeparator : DEFAULT_PATH_SEPARATOR;
+
+		if (patterns != null) {
+			for (String pattern : patterns) {
+				if (StringUtils.isNotEmpty(pattern)) {
+					addPattern(pattern);
+					list.add(pattern);
+				}
+			}
+		}
+
+		this.patterns = list.toArray(new String[0]);
+	}
+
+	private void addPattern(String pattern) {
+		String[] tokens  = tokenizeToStringArray(pattern, pathSeparator, false, true);
+		Node     node    = pattern.startsWith(pathSeparator) ? absoluteRoot : relativeRoot;
+		boolean  hasGlob = false;
+
+		for (String token : tokens) {
+			if (DOUBLE_WILDCARD.equals(token)) {
+				hasGlob = true;
+			}
+		}
+
+		for (int i = 0; i < tokens.length; i++) {
+			String token = tokens[i];
+
+			// 不包含"**"且最后一级目录为"*"的规则可以匹配以分隔符结尾的上级目录，如："/a/*"匹配"/a/"
+			if (!hasGlob && i == tokens.length - 1 && "*".equals(token)) {
+				node.starEnd = true;
+			}
+
+			node = node.child(token);
+		}
+
+		if (hasGlob) {
+			node.globEnd = true;
+		} else if (pattern.endsWith(pathSeparator)) {
+			node.separatorEnd = true;
+		} else {
+			node.exactEnd = true;
+		}
+	}
+
+	/**
+	 * 检测路径是否匹配任意一条规则，等价于逐条调用AntPathMatcherUtils.pathMatch
+	 *
+	 * @param path 路径
+	 * @return 是否匹配
+	 */
+	public boolean match(String path) {
+		if (StringUtils.isEmpty(path) || patterns.length == 0) {
+			return false;
+		}
+
+		Node       root    = path.startsWith(pathSeparator) ? absoluteRoot : relativeRoot;
+		List<Node> current = new ArrayList<Node>();
+		List<Node> next    = new ArrayList<Node>();
+
+		addState(current, root);
+
+		StringTokenizer tokenizer = new StringTokenizer(path, pathSeparator);
+
+		while (tokenizer.hasMoreTokens() && !current.isEmpty()) {
+			String segment = tokenizer.nextToken();
+
+			for (Node node : current) {
+				// "**"节点可以匹配任意多级目录
+				if (node.glob) {
+					addState(next, node);
+				}
+
+				if (node.literals != null) {
+					Node child = node.literals.get(segment);
+
+					if (child != null) {
+						addState(next, child);
+					}
+				}
+
+				if (node.wildcards != null) {
+					for (Node child : node.wildcards) {
+						if (child.matcher.matchStrings(segment, null)) {
+							addState(next, child);
+						}
+					}
+				}
+			}
+
+			List<Node> tmp = current;
+			current = next;
+			next = tmp;
+			next.clear();
+		}
+
+		if (tokenizer.hasMoreTokens()) {
+			return false;
+		}
+
+		boolean endsWithSeparator = path.endsWith(pathSeparator);
+
+		for (Node node : current) {
+			if (node.globEnd || (endsWithSeparator ? node.separatorEnd : node.exactEnd)) {
+				return true;
+			}
+
+			if (endsWithSeparator && node.starEnd) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * 添加匹配状态，"**"可以匹配0级目录，所以需要同时添加"**"子节点
+	 */
+	private static void addState(List<Node> states, Node node) {
+		while (node != null && !states.contains(node)) {
+			states.add(node);
+			node = node.globChild;
+		}
+	}
+
+	public String[] getPatterns() {
+		return patterns.clone();
+	}
+
+	public String getPathSeparator() {
+		return pathSeparator;
+	}
+
+	public boolean isEmpty() {
+		return patterns.length == 0;
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(patterns);
+	}
+
+	private static class Node {
+
+		/**
+		 * 普通目录子节点
+		 */
+		private Map<String, Node> literals;
+
+		/**
+		 * 通配符目录子节点
+		 */
+		private List<Node> wildcards;
+
+		/**
+		 * "**"子节点
+		 */
+		private Node globChild;
+
+		/**
+		 * 通配符目录规则
+		 */
+		private String token;
+
+		/**
+		 * 通配符目录匹配器
+		 */
+		private AntPathStringMatcher matcher;
+
+		/**
+		 * 当前节点是否是"**"
+		 */
+		private boolean glob;
+
+		/**
+		 * 不包含"**"且不以分隔符结尾的规则在当前节点结束
+		 */
+		private boolean exactEnd;
+
+		/**
+		 * 不包含"**"且以分隔符结尾的规则在当前节点结束
+		 */
+		private boolean separatorEnd;
+
+		/**
+		 * 包含"**"的规则在当前节点结束
+		 */
+		private boolean globEnd;
+
+		/**
+		 * 当前节点存在不包含"**"且以"*"结束的子规则
+		 */
+		private boolean starEnd;
+
+		Node child(String token) {
+			if (DOUBLE_WILDCARD.equals(token)) {
+				if (globChild == null) {
+					globChild = new Node();
+					globChild.glob = true;
+				}
+
+				return globChild;
+			}
+
+			if (isWildcard(token)) {
+				if (wildcards == null) {
+					wildcards = new ArrayList<Node>();
+				}
+
+				for (Node node : wildcards) {
+					if (node.token.equals(token)) {
+						return node;
+					}
+				}
+
+				Node node = new Node();
+				node.token = token;
+				node.matcher = new AntPathStringMatcher(token);
+				wildcards.add(node);
+
+				return node;
+			}
+
+			if (literals == null) {
+				literals = new HashMap<String, Node>();
+			}
+
+			Node node = literals.get(token);
+
+			if (node == null) {
+				literals.put(token, node = new Node());
+			}
+
+			return node;
+		}
+
+		private static boolean isWildcard(String token) {
+			return token.indexOf('*') != -1 || token.indexOf('?') != -1 || token.indexOf('{') != -1;
+		}
+
+	}
+
+}
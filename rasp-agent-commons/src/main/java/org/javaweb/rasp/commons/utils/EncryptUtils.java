@@ -2,6 +2,7 @@ package org.javaweb.rasp.commons.utils;
 
 import org.apache.commons.codec.digest.DigestUtils;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
@@ -18,6 +19,16 @@ import static org.javaweb.rasp.commons.constants.RASPConstants.DEFAULT_ENCODING;
  */
 public class EncryptUtils {
 
+	/**
+	 * 线程复用的输出缓存最多保留的大小，超过后释放
+	 */
+	private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+
+	/**
+	 * 当前线程复用的RC4加密输出流
+	 */
+	private static final ThreadLocal<ContentEncryptor> CONTENT_ENCRYPTOR = new ThreadLocal<ContentEncryptor>();
+
 	/**
 	 * MD5加密
 	 *
@@ -111,20 +122,80 @@ public class EncryptUtils {
 	 * @return 加密后的字符串
 	 */
 	public static String enContent(String data, String rc4Key) {
+		if (data == null) {
+			return null;
+		}
+
 		try {
-			return new String(encodeBase64(RC4Utils.encryptionRC4Byte(data, rc4Key)), DEFAULT_ENCODING);
+			byte[] bytes = data.getBytes(DEFAULT_ENCODING);
+
+			return enContent(bytes, 0, bytes.length, rc4Key);
 		} catch (UnsupportedEncodingException e) {
 			return null;
 		}
 	}
 
 	public static String enContent(Object obj, String rc4Key) {
+		return enContent(JsonUtils.toJson(obj), rc4Key);
+	}
+
+	/**
+	 * 加密，使用当前线程复用的RC4Base64OutputStream边加密边Base64编码，结果和enContent(String, String)一致
+	 *
+	 * @param data   待加密的内容（UTF-8编码）
+	 * @param off    起始位置
+	 * @param len    长度
+	 * @param rc4Key 加密key
+	 * @return 加密后的字符串，key为空时返回null
+	 */
+	public static String enContent(byte[] data, int off, int len, String rc4Key) {
+		RC4KeySchedule keySchedule = RC4KeySchedule.getKeySchedule(rc4Key);
+
+		if (keySchedule == null) {
+			return null;
+		}
+
+		ContentEncryptor encryptor = CONTENT_ENCRYPTOR.get();
+
+		if (encryptor == null) {
+			encryptor = new ContentEncryptor(keySchedule);
+			CONTENT_ENCRYPTOR.set(encryptor);
+		}
+
 		try {
-			String json = JsonUtils.toJson(obj);
-			return new String(encodeBase64(RC4Utils.encryptionRC4Byte(json, rc4Key)), DEFAULT_ENCODING);
-		} catch (UnsupportedEncodingException e) {
+			return encryptor.encrypt(data, off, len, keySchedule);
+		} catch (IOException e) {
 			return null;
+		} finally {
+			if (encryptor.buffer.size() > MAX_RETAINED_BUFFER_SIZE) {
+				CONTENT_ENCRYPTOR.remove();
+			}
+		}
+	}
+
+	/**
+	 * 线程复用的加密输出流和Base64输出缓存
+	 */
+	private static class ContentEncryptor {
+
+		private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+
+		private final RC4Base64OutputStream out;
+
+		ContentEncryptor(RC4KeySchedule keySchedule) {
+			this.out = new RC4Base64OutputStream(buffer, keySchedule);
 		}
+
+		String encrypt(byte[] data, int off, int len, RC4KeySchedule keySchedule) throws IOException {
+			buffer.reset();
+			out.reset(keySchedule);
+			out.write(data, off, len);
+			out.finish();
+
+			// Base64只包含ASCII字符
+			return buffer.toString("ISO-8859-1");
+		}
+
 	}
 
 	/**
@@ -1,6 +1,10 @@
 package org.javaweb.rasp.commons.utils;
 
 import java.io.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -252,66 +256,100 @@ public class FileUtils {
 		return ((c >= 'a') && (c <= 'z')) || ((c >= 'A') && (c <= 'Z'));
 	}
 
+	/**
+	 * 按行（二进制日志按块）切割日志文件，切割后的文件不超过fileSize（单行超过fileSize时该行单独为一个文件），
+	 * 使用RASPFileChunker查找分片边界，FileChannel.transferTo复制数据，不解码日志内容
+	 *
+	 * @param targetFile 日志文件
+	 * @param fileSize   切割后的文件大小
+	 * @return 切割后的文件列表，文件不超过fileSize时只包含targetFile
+	 * @throws IOException IO异常
+	 */
 	public static List<File> split(File targetFile, long fileSize) throws IOException {
 		List<File> fileList = new ArrayList<File>();
 
-		if (targetFile.length() > fileSize) {
-			String           str;
-			int              index  = 0;
-			int              len    = 0;
-			BufferedReader   br     = null;
-			FileOutputStream fos    = null;
-			File             parent = targetFile.getParentFile();
-
-			try {
-				br = new BufferedReader(new InputStreamReader(new FileInputStream(targetFile)), 8192);
-
-				while ((str = br.readLine()) != null) {
-					// 切换新的临时文件
-					if (fos != null && len > fileSize) {
-						fos.flush();
-						fos.close();
-
-						len = 0;
-						fos = null;
-					}
+		if (targetFile.length() <= fileSize) {
+			fileList.add(targetFile);
 
-					if (fos == null) {
-						File   tmpFile;
-						String fileName = targetFile.getName();
-						int    lastDot  = fileName.lastIndexOf(".");
+			return fileList;
+		}
 
-						if (lastDot > 0) {
-							String name   = fileName.substring(0, lastDot);
-							String suffix = fileName.substring(lastDot);
-							tmpFile = new File(parent, name + "." + (++index) + suffix);
-						} else {
-							tmpFile = new File(parent, fileName + "." + (++index));
-						}
+		List<RASPFileChunk> chunks = RASPFileChunker.chunk(targetFile, fileSize);
+		FileInputStream     fis    = null;
 
-						fos = new FileOutputStream(tmpFile);
+		try {
+			fis = new FileInputStream(targetFile);
 
-						fileList.add(tmpFile);
-					}
+			FileChannel in    = fis.getChannel();
+			int         index = 0;
 
-					len += str.length();
-					fos.write((str + "\r\n").getBytes());
-				}
+			for (RASPFileChunk chunk : chunks) {
+				File             tmpFile = getSplitFile(targetFile, ++index);
+				FileOutputStream fos     = new FileOutputStream(tmpFile);
 
-				if (fos != null) {
-					fos.flush();
+				try {
+					chunk.transferTo(in, fos.getChannel());
+				} finally {
 					fos.close();
 				}
-			} finally {
-				if (br != null) IOUtils.closeQuietly(br);
+
+				fileList.add(tmpFile);
 			}
-		} else {
-			fileList.add(targetFile);
+		} finally {
+			IOUtils.closeQuietly(fis);
 		}
 
 		return fileList;
 	}
 
+	private static File getSplitFile(File targetFile, int index) {
+		String fileName = targetFile.getName();
+		int    lastDot  = fileName.lastIndexOf(".");
+
+		if (lastDot > 0) {
+			String name   = fileName.substring(0, lastDot);
+			String suffix = fileName.substring(lastDot);
+
+			return new File(targetFile.getParentFile(), name + "." + index + suffix);
+		}
+
+		return new File(targetFile.getParentFile(), fileName + "." + index);
+	}
+
+	/**
+	 * 释放MappedByteBuffer/DirectByteBuffer占用的内存映射，JDK 8及以下使用DirectBuffer.cleaner()，
+	 * JDK 9+使用Unsafe.invokeCleaner，释放失败时等待GC回收。释放后不能再访问该buffer。
+	 *
+	 * @param buffer 需要释放的buffer
+	 */
+	public static void unmap(ByteBuffer buffer) {
+		if (buffer == null || !buffer.isDirect()) {
+			return;
+		}
+
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Method   method      = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			Field    field       = unsafeClass.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			method.invoke(field.get(null), buffer);
+
+			return;
+		} catch (Throwable ignored) {
+		}
+
+		try {
+			Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+			cleanerMethod.setAccessible(true);
+			Object cleaner = cleanerMethod.invoke(buffer);
+
+			if (cleaner != null) {
+				cleaner.getClass().getMethod("clean").invoke(cleaner);
+			}
+		} catch (Throwable ignored) {
+		}
+	}
+
 	public static List<File> listFiles(File directory, String[] extensions, boolean recursive) {
 		List<File> fileList = new ArrayList<File>();
 
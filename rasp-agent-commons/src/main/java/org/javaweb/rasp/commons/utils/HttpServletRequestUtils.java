@@ -32,6 +32,17 @@ public class HttpServletRequestUtils {
 	 */
 	private static final Map<Integer, File> DOCUMENT_ROOT_MAP = new ConcurrentHashMap<Integer, File>();
 
+	/**
+	 * 缓存当前线程最近检测过的客户端IP是否是内网IP，经过负载均衡转发的请求客户端IP通常只有几个，
+	 * 命中缓存时不需要重复解析IP地址
+	 */
+	private static final ThreadLocal<LanIPCache> LAN_IP_CACHE = new ThreadLocal<LanIPCache>() {
+		@Override
+		protected LanIPCache initialValue() {
+			return new LanIPCache();
+		}
+	};
+
 	/**
 	 * 获取web目录,Weblogic 默认以war包部署的时候不能用getRealPath,xxx.getResource("/")获取
 	 * 的是当前应用所在的类路径，截取到WEB-INF之后的路径就是当前应用的web根目录了
@@ -125,14 +136,11 @@ public class HttpServletRequestUtils {
 		String ip = request.getRemoteAddr();
 
 		// 如果IP地址为空或者IP是本机、内网地址，需要解析请求头中的IP
-		if (isLanIP(ip)) {
+		if (ip != null && LAN_IP_CACHE.get().isLanIP(ip)) {
 			String ipKey   = AGENT_PROPERTIES.getProxyIpHeader();
 			String proxyIP = request.getHeader(ipKey);
 
-			if (proxyIP != null) {
-				if (textToNumericFormatV4(proxyIP) != null) return proxyIP;
-				if (textToNumericFormatV6(proxyIP) != null) return proxyIP;
-			}
+			if (isIPAddress(proxyIP)) return proxyIP;
 		}
 
 		return "0:0:0:0:0:0:0:1".equals(ip) ? "127.0.0.1" : ip;
@@ -263,4 +271,33 @@ public class HttpServletRequestUtils {
 		return logMap;
 	}
 
+	/**
+	 * 直接映射的IP检测结果缓存，只在当前线程中使用
+	 */
+	private static class LanIPCache {
+
+		private static final int SIZE = 16;
+
+		private final String[] ips = new String[SIZE];
+
+		private final boolean[] lanIPs = new boolean[SIZE];
+
+		boolean isLanIP(String ip) {
+			int    index  = ip.hashCode() & (SIZE - 1);
+			String cached = ips[index];
+
+			if (cached != null && cached.equals(ip)) {
+				return lanIPs[index];
+			}
+
+			boolean lanIP = IPV4Utils.isLanIP(ip);
+
+			ips[index] = ip;
+			lanIPs[index] = lanIP;
+
+			return lanIP;
+		}
+
+	}
+
 }
@@ -0,0 +1,288 @@
+package org.javaweb.rasp.commons.utils;
+
+import java.util.Collection;
+
+import static org.javaweb.rasp.commons.utils.IPV4Utils.parseIPv4;
+import static org.javaweb.rasp.commons.utils.IPV4Utils.parseIPv6;
+
+/**
+ * IP地址前缀树（压缩二叉基数树/Patricia Tree），用于检测IP地址是否在大量的IP或CIDR网段中。
+ * <p>
+ * 所有地址统一使用128位表示，IPv4地址映射到::ffff:0:0/96网段，IPv4的"/n"网段对应IPv6的"/(96+n)"网段。
+ * 只有一个子节点的路径会被压缩到一个节点中，查询时最多比较128位，时间复杂度和规则条数无关，查询过程不创建任何对象。
+ * <p>
+ * 支持的规则格式：单个IP（如：1.2.3.4、2001:db8::1）、CIDR网段（如：10.0.0.0/8、2001:db8::/32），非法的规则会被忽略。
+ * 对象创建后不可修改，可以在多个线程中共享。
+ */
+public class IPPrefixTree {
+
+	/**
+	 * IPv4映射地址前缀：::ffff:0:0/96
+	 */
+	private static final long IPV4_MAPPED_PREFIX = 0x0000FFFF00000000L;
+
+	private static final int IPV4_MAPPED_BITS = 96;
+
+	/**
+	 * 解析IPv6地址使用的临时数组，避免每次查询都创建数组
+	 */
+	private static final ThreadLocal<long[]> IPV6_BUFFER = new ThreadLocal<long[]>() {
+		@Override
+		protected long[] initialValue() {
+			return new long[2];
+		}
+	};
+
+	private Node root;
+
+	/**
+	 * 已添加的规则条数
+	 */
+	private int size;
+
+	public IPPrefixTree(String[] rules) {
+		if (rules != null) {
+			for (String rule : rules) {
+				addRule(rule);
+			}
+		}
+	}
+
+	public IPPrefixTree(Collection<String> rules) {
+		if (rules != null) {
+			for (String rule : rules) {
+				addRule(rule);
+			}
+		}
+	}
+
+	private void addRule(String rule) {
+		if (rule == null || (rule = rule.trim()).length() == 0) {
+			return;
+		}
+
+		int    index  = rule.indexOf('/');
+		String ip     = index != -1 ? rule.substring(0, index) : rule;
+		int    prefix = -1;
+
+		if (index != -1) {
+			try {
+				prefix = Integer.parseInt(rule.substring(index + 1).trim());
+			} catch (NumberFormatException e) {
+				return;
+			}
+
+			if (prefix < 0) {
+				return;
+			}
+		}
+
+		if (ip.indexOf(':') == -1) {
+			long v4 = parseIPv4(ip);
+
+			if (v4 == -1 || prefix > 32) {
+				return;
+			}
+
+			add(0, IPV4_MAPPED_PREFIX | v4, IPV4_MAPPED_BITS + (prefix < 0 ? 32 : prefix));
+		} else {
+			long[] address = new long[2];
+
+			if (!parseIPv6(ip, address) || prefix > 128) {
+				return;
+			}
+
+			add(address[0], address[1], prefix < 0 ? 128 : prefix);
+		}
+
+		size++;
+	}
+
+	private void add(long hi, long lo, int bits) {
+		hi &= hiMask(bits);
+		lo &= loMask(bits);
+
+		Node parent = null;
+		Node node   = root;
+
+		while (node != null) {
+			int common = commonPrefix(node.hi, node.lo, hi, lo, Math.min(node.bits, bits));
+
+			if (common == node.bits) {
+				// 已包含在更短的网段中
+				if (node.terminal) {
+					return;
+				}
+
+				if (bits == node.bits) {
+					// 更长的网段已经被当前网段包含，不再需要子节点
+					node.terminal = true;
+					node.left = node.right = null;
+					return;
+				}
+
+				parent = node;
+				node = bit(hi, lo, node.bits) == 0 ? node.left : node.right;
+				continue;
+			}
+
+			// 在当前节点之前分叉，插入新节点替换当前节点
+			Node replacement;
+
+			if (common == bits) {
+				replacement = new Node(hi, lo, bits, true);
+			} else {
+				replacement = new Node(hi & hiMask(common), lo & loMask(common), common, false);
+				replacement.setChild(bit(node.hi, node.lo, common), node);
+				replacement.setChild(bit(hi, lo, common), new Node(hi, lo, bits, true));
+			}
+
+			replaceChild(parent, hi, lo, replacement);
+			return;
+		}
+
+		replaceChild(parent, hi, lo, new Node(hi, lo, bits, true));
+	}
+
+	private void replaceChild(Node parent, long hi, long lo, Node node) {
+		if (parent == null) {
+			root = node;
+		} else {
+			parent.setChild(bit(hi, lo, parent.bits), node);
+		}
+	}
+
+	/**
+	 * 检测IP地址是否在任意一条规则中，支持IPv4和IPv6地址，非法的IP地址返回false
+	 *
+	 * @param ip IP地址
+	 * @return 是否匹配
+	 */
+	public boolean contains(String ip) {
+		if (ip == null || root == null) {
+			return false;
+		}
+
+		if (ip.indexOf(':') == -1) {
+			long v4 = parseIPv4(ip);
+
+			return v4 != -1 && contains(0, IPV4_MAPPED_PREFIX | v4);
+		}
+
+		long[] address = IPV6_BUFFER.get();
+
+		return parseIPv6(ip, address) && contains(address[0], address[1]);
+	}
+
+	/**
+	 * 检测IPv4地址是否在任意一条规则中
+	 *
+	 * @param address IPv4地址的无符号整数值
+	 * @return 是否匹配
+	 */
+	public boolean containsIPv4(long address) {
+		return contains(0, IPV4_MAPPED_PREFIX | (address & 0xFFFFFFFFL));
+	}
+
+	/**
+	 * 检测128位地址是否在任意一条规则中
+	 *
+	 * @param hi 高64位
+	 * @param lo 低64位
+	 * @return 是否匹配
+	 */
+	public boolean contains(long hi, long lo) {
+		Node node = root;
+
+		while (node != null) {
+			if (((hi & hiMask(node.bits)) != node.hi) || ((lo & loMask(node.bits)) != node.lo)) {
+				return false;
+			}
+
+			if (node.terminal) {
+				return true;
+			}
+
+			node = bit(hi, lo, node.bits) == 0 ? node.left : node.right;
+		}
+
+		return false;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return root == null;
+	}
+
+	private static long hiMask(int bits) {
+		return bits >= 64 ? -1L : bits == 0 ? 0 : -1L << (64 - bits);
+	}
+
+	private static long loMask(int bits) {
+		return bits <= 64 ? 0 : bits == 128 ? -1L : -1L << (128 - bits);
+	}
+
+	/**
+	 * 获取第index位（从最高位开始，0-127）
+	 */
+	private static int bit(long hi, long lo, int index) {
+		return (int) (index < 64 ? (hi >>> (63 - index)) & 1 : (lo >>> (127 - index)) & 1);
+	}
+
+	/**
+	 * 计算两个地址的公共前缀长度，最大为limit
+	 */
+	private static int commonPrefix(long hi1, long lo1, long hi2, long lo2, int limit) {
+		long x      = hi1 ^ hi2;
+		int  common = x != 0 ? Long.numberOfLeadingZeros(x) : 64 + Long.numberOfLeadingZeros(lo1 ^ lo2);
+
+		return Math.min(common, limit);
+	}
+
+	private static class Node {
+
+		/**
+		 * 网段地址高64位（已按bits截断）
+		 */
+		private final long hi;
+
+		/**
+		 * 网段地址低64位（已按bits截断）
+		 */
+		private final long lo;
+
+		/**
+		 * 网段前缀长度
+		 */
+		private final int bits;
+
+		/**
+		 * 当前节点是否是一条规则，否则只是分叉节点
+		 */
+		private boolean terminal;
+
+		private Node left;
+
+		private Node right;
+
+		Node(long hi, long lo, int bits, boolean terminal) {
+			this.hi = hi;
+			this.lo = lo;
+			this.bits = bits;
+			this.terminal = terminal;
+		}
+
+		void setChild(int bit, Node node) {
+			if (bit == 0) {
+				left = node;
+			} else {
+				right = node;
+			}
+		}
+
+	}
+
+}
@@ -256,6 +256,229 @@ public class IPV4Utils {
 				(addr[11] == (byte) 0xff);
 	}
 
+	/**
+	 * 解析IPv4地址，解析规则和textToNumericFormatV4一致，但不创建byte数组
+	 *
+	 * @param src IPv4地址
+	 * @return IPv4地址的无符号整数值，非法地址返回-1
+	 */
+	public static long parseIPv4(String src) {
+		if (src == null) {
+			return -1;
+		}
+
+		return parseIPv4(src, 0, src.length());
+	}
+
+	/**
+	 * 解析字符串中[start, end)范围内的IPv4地址
+	 *
+	 * @param src   字符串
+	 * @param start 开始位置
+	 * @param end   结束位置
+	 * @return IPv4地址的无符号整数值，非法地址返回-1
+	 */
+	@SuppressWarnings("fallthrough")
+	public static long parseIPv4(String src, int start, int end) {
+		int len = end - start;
+
+		if (len < 1 || len > 15) {
+			return -1;
+		}
+
+		long    address  = 0;
+		long    tmpValue = 0;
+		int     currByte = 0;
+		boolean newOctet = true;
+		boolean hasDot   = false;
+
+		for (int i = start; i < end; i++) {
+			char c = src.charAt(i);
+
+			if (c == '.') {
+				if (newOctet || tmpValue > 0xff || currByte == 3) {
+					return -1;
+				}
+
+				address |= tmpValue << ((3 - currByte++) * 8);
+				tmpValue = 0;
+				newOctet = true;
+				hasDot = true;
+			} else {
+				int digit = Character.digit(c, 10);
+
+				if (digit < 0) {
+					return -1;
+				}
+
+				tmpValue = tmpValue * 10 + digit;
+				newOctet = false;
+			}
+		}
+
+		if (!hasDot || newOctet || tmpValue >= (1L << ((4 - currByte) * 8))) {
+			return -1;
+		}
+
+		// 最后一段按剩余字节数解析，如："10.1"等价于"10.0.0.1"
+		return address | tmpValue;
+	}
+
+	/**
+	 * 解析IPv6地址，解析规则和textToNumericFormatV6一致（支持"::"缩写、结尾的IPv4地址和"%"后的网卡名称），
+	 * 但不创建数组和字符串，解析结果按网络字节序写入dst[0]（高64位）和dst[1]（低64位），
+	 * IPv4映射地址（::ffff:a.b.c.d）不会转换成IPv4地址
+	 *
+	 * @param src IPv6地址
+	 * @param dst 解析结果，长度必须大于等于2
+	 * @return 是否是合法的IPv6地址
+	 */
+	public static boolean parseIPv6(String src, long[] dst) {
+		if (src == null || src.length() < 2) {
+			return false;
+		}
+
+		int end = src.indexOf('%');
+
+		if (end == src.length() - 1) {
+			return false;
+		}
+
+		if (end == -1) {
+			end = src.length();
+		}
+
+		// "::"之前的部分和之后的部分分别按16位分组累加，最后再将前半部分左移到高位
+		long    headHi     = 0, headLo = 0, tailHi = 0, tailLo = 0;
+		int     headGroups = 0, tailGroups = 0;
+		boolean compressed = false;
+		boolean sawXDigit  = false;
+		int     val        = 0;
+		int     token      = 0;
+		int     i          = 0;
+
+		if (src.charAt(0) == ':') {
+			if (src.charAt(1) != ':') {
+				return false;
+			}
+
+			i = 1;
+			token = 1;
+		}
+
+		while (i < end) {
+			char ch    = src.charAt(i++);
+			int  chval = Character.digit(ch, 16);
+
+			if (chval != -1) {
+				val = (val << 4) | chval;
+
+				if (val > 0xffff) {
+					return false;
+				}
+
+				sawXDigit = true;
+				continue;
+			}
+
+			if (ch == ':') {
+				token = i;
+
+				if (!sawXDigit) {
+					if (compressed) {
+						return false;
+					}
+
+					compressed = true;
+					continue;
+				} else if (i == end) {
+					return false;
+				}
+
+				if (headGroups + tailGroups == 8) {
+					return false;
+				}
+
+				if (compressed) {
+					tailHi = (tailHi << 16) | (tailLo >>> 48);
+					tailLo = (tailLo << 16) | val;
+					tailGroups++;
+				} else {
+					headHi = (headHi << 16) | (headLo >>> 48);
+					headLo = (headLo << 16) | val;
+					headGroups++;
+				}
+
+				sawXDigit = false;
+				val = 0;
+				continue;
+			}
+
+			if (ch == '.' && headGroups + tailGroups <= 6) {
+				// 结尾的IPv4地址必须是A.B.C.D格式
+				int dots = 0;
+
+				for (int j = token; j < end; j++) {
+					if (src.charAt(j) == '.') {
+						dots++;
+					}
+				}
+
+				long v4 = dots == 3 ? parseIPv4(src, token, end) : -1;
+
+				if (v4 == -1) {
+					return false;
+				}
+
+				if (compressed) {
+					tailHi = (tailHi << 32) | (tailLo >>> 32);
+					tailLo = (tailLo << 32) | v4;
+					tailGroups += 2;
+				} else {
+					headHi = (headHi << 32) | (headLo >>> 32);
+					headLo = (headLo << 32) | v4;
+					headGroups += 2;
+				}
+
+				sawXDigit = false;
+				break;
+			}
+
+			return false;
+		}
+
+		if (sawXDigit) {
+			if (headGroups + tailGroups == 8) {
+				return false;
+			}
+
+			if (compressed) {
+				tailHi = (tailHi << 16) | (tailLo >>> 48);
+				tailLo = (tailLo << 16) | val;
+				tailGroups++;
+			} else {
+				headHi = (headHi << 16) | (headLo >>> 48);
+				headLo = (headLo << 16) | val;
+				headGroups++;
+			}
+		}
+
+		if (compressed ? headGroups + tailGroups == 8 : headGroups != 8) {
+			return false;
+		}
+
+		// 将"::"之前的分组左移到高位
+		for (int n = headGroups; n < 8; n++) {
+			headHi = (headHi << 16) | (headLo >>> 48);
+			headLo <<= 16;
+		}
+
+		dst[0] = headHi | tailHi;
+		dst[1] = headLo | tailLo;
+
+		return true;
+	}
+
 	public static long ipV4ToLong(byte[] addr) {
 		int address = addr[3] & 0xFF;
 		address |= ((addr[2] << 8) & 0xFF00);
@@ -283,7 +506,17 @@ public class IPV4Utils {
 	}
 
 	/**
-	 * 检查IP地址是否是局域网或本机地址
+	 * 解析IPv6地址使用的临时数组
+	 */
+	private static final ThreadLocal<long[]> IPV6_BUFFER = new ThreadLocal<long[]>() {
+		@Override
+		protected long[] initialValue() {
+			return new long[2];
+		}
+	};
+
+	/**
+	 * 检查IP地址是否是局域网或本机地址，使用parseIPv4/parseIPv6解析，不创建临时对象
 	 *
 	 * @param ip IP地址
 	 * @return 是否是LAN IP
@@ -294,23 +527,43 @@ public class IPV4Utils {
 		// 排除本地IP地址
 		if ("0:0:0:0:0:0:0:1".equals(ip) || "127.0.0.1".equals(ip)) return true;
 
-		if (ip.contains(".")) {
-			byte[] ipAddress = textToNumericFormatV4(ip);
+		if (ip.indexOf(':') == -1) {
+			long address = parseIPv4(ip);
 
-			if (ipAddress != null) {
-				return isIPV4SiteLocalAddress(ipV4ToLong(ipAddress));
-			}
-		} else if (ip.contains(":")) {
-			byte[] ipAddress = textToNumericFormatV6(ip);
+			return address != -1 && isIPV4SiteLocalAddress(address);
+		}
+
+		long[] address = IPV6_BUFFER.get();
 
-			if (ipAddress != null) {
-				return isIPV6SiteLocalAddress(ipAddress);
+		if (parseIPv6(ip, address)) {
+			// IPv4映射地址（::ffff:a.b.c.d）按IPv4地址检测
+			if (address[0] == 0 && (address[1] >>> 32) == 0xFFFFL) {
+				return isIPV4SiteLocalAddress(address[1] & 0xFFFFFFFFL);
 			}
+
+			// fec0::/10
+			return (address[0] >>> 54) == (0xFEC0L >>> 6);
 		}
 
 		return false;
 	}
 
+	/**
+	 * 检测字符串是否是合法的IPv4或IPv6地址，不创建临时对象
+	 *
+	 * @param ip IP地址
+	 * @return 是否是合法的IP地址
+	 */
+	public static boolean isIPAddress(String ip) {
+		if (ip == null) return false;
+
+		if (ip.indexOf(':') == -1) {
+			return parseIPv4(ip) != -1;
+		}
+
+		return parseIPv6(ip, IPV6_BUFFER.get());
+	}
+
 	/**
 	 * 获取本机网卡信息
 	 *
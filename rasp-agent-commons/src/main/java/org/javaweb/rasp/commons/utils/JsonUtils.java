@@ -8,6 +8,7 @@ import com.google.gson.reflect.TypeToken;
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonToken;
 import com.google.gson.stream.JsonWriter;
+import org.javaweb.rasp.commons.log.RASPLog;
 
 import java.io.IOException;
 import java.lang.reflect.Type;
@@ -31,6 +32,40 @@ public class JsonUtils {
 		return GSON.toJson(src);
 	}
 
+	/**
+	 * 序列化RASP日志，日志类支持时使用RASPJsonWriter直接输出，否则使用Gson，两种方式输出的JSON完全一致。
+	 * 日志中包含不成对的代理字符时，UTF-8编码无法还原原始字符串，也使用Gson
+	 *
+	 * @param log RASP日志
+	 * @return JSON字符串
+	 */
+	public static String toJson(RASPLog log) {
+		RASPJsonWriter writer = writeJson(log);
+
+		if (writer != null && !writer.hasUnpairedSurrogate()) {
+			return writer.toString();
+		}
+
+		return GSON.toJson(log);
+	}
+
+	/**
+	 * 使用当前线程复用的RASPJsonWriter序列化RASP日志
+	 *
+	 * @param log RASP日志
+	 * @return 已写入日志的RASPJsonWriter，日志类不支持RASPJsonWriter时返回null
+	 */
+	public static RASPJsonWriter writeJson(RASPLog log) {
+		if (log == null || !RASPLog.isJsonWriterSupported(log.getClass())) {
+			return null;
+		}
+
+		RASPJsonWriter writer = RASPJsonWriter.getThreadLocalWriter();
+		log.writeJson(writer);
+
+		return writer;
+	}
+
 	private static <T> T fromJson(Object object, Type typeOfT) {
 		String json;
 
@@ -0,0 +1,100 @@
+package org.javaweb.rasp.commons.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * 日志文件分片，表示文件中[offset, offset + length)的字节范围，分片边界总是在一行（或一个二进制日志块）的结尾。
+ * 上传日志时可以直接使用FileChannel.transferTo将分片写入网络或其他文件，不需要生成临时文件。
+ */
+public class RASPFileChunk {
+
+	private final File file;
+
+	private final long offset;
+
+	private final long length;
+
+	public RASPFileChunk(File file, long offset, long length) {
+		this.file = file;
+		this.offset = offset;
+		this.length = length;
+	}
+
+	/**
+	 * 将分片数据写入target
+	 *
+	 * @param target 输出通道
+	 * @return 写入的字节数
+	 * @throws IOException IO异常
+	 */
+	public long transferTo(WritableByteChannel target) throws IOException {
+		FileInputStream in = new FileInputStream(file);
+
+		try {
+			return transferTo(in.getChannel(), target);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * 使用已打开的文件通道将分片数据写入target，同一个文件有多个分片时可以复用文件通道
+	 *
+	 * @param in     分片所在文件的通道
+	 * @param target 输出通道
+	 * @return 写入的字节数
+	 * @throws IOException IO异常
+	 */
+	public long transferTo(FileChannel in, WritableByteChannel target) throws IOException {
+		long position = offset;
+		long end      = offset + length;
+
+		while (position < end) {
+			long count = in.transferTo(position, end - position, target);
+
+			// 文件被截断
+			if (count <= 0 && position >= in.size()) {
+				break;
+			}
+
+			position += count;
+		}
+
+		return position - offset;
+	}
+
+	/**
+	 * 将分片数据写入输出流，如：HTTP请求的输出流
+	 *
+	 * @param out 输出流
+	 * @return 写入的字节数
+	 * @throws IOException IO异常
+	 */
+	public long writeTo(OutputStream out) throws IOException {
+		return transferTo(Channels.newChannel(out));
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public long getOffset() {
+		return offset;
+	}
+
+	public long getLength() {
+		return length;
+	}
+
+	@Override
+	public String toString() {
+		return file + "[" + offset + ", " + (offset + length) + ")";
+	}
+
+}
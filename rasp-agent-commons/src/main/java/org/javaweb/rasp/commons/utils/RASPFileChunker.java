@@ -0,0 +1,133 @@
+package org.javaweb.rasp.commons.utils;
+
+import org.javaweb.rasp.commons.log.RASPBinaryLogReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+
+/**
+ * 日志文件分片工具，按行（文本日志）或按块（二进制日志）将文件划分为多个不超过chunkSize的字节范围。
+ * <p>
+ * 文本日志使用MappedByteBuffer直接扫描换行符，不解码字符、不生成临时文件；单行超过chunkSize时该行单独作为一个分片。
+ * 二进制日志只读取块头，文件末尾不完整的块会被忽略。
+ */
+public class RASPFileChunker {
+
+	/**
+	 * 查找换行符时每次映射的大小
+	 */
+	private static final int SCAN_WINDOW_SIZE = 1024 * 1024;
+
+	/**
+	 * 将文件划分为多个分片
+	 *
+	 * @param file      日志文件
+	 * @param chunkSize 分片最大字节数
+	 * @return 分片列表，空文件返回空列表
+	 * @throws IOException IO异常
+	 */
+	public static List<RASPFileChunk> chunk(File file, long chunkSize) throws IOException {
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+		}
+
+		if (RASPBinaryLogReader.isBinaryLog(file)) {
+			return chunkBinaryLog(file, chunkSize);
+		}
+
+		List<RASPFileChunk> chunks = new ArrayList<RASPFileChunk>();
+		RandomAccessFile    raf    = new RandomAccessFile(file, "r");
+
+		try {
+			FileChannel channel = raf.getChannel();
+			long        size    = channel.size();
+			long        start   = 0;
+
+			while (start < size) {
+				long end = chunkSize >= size - start ? size : findChunkEnd(channel, start, start + chunkSize, size);
+
+				chunks.add(new RASPFileChunk(file, start, end - start));
+				start = end;
+			}
+		} finally {
+			raf.close();
+		}
+
+		return chunks;
+	}
+
+	/**
+	 * 查找分片结尾：limit之前最后一个换行符之后的位置，没有换行符时返回limit之后第一个换行符之后的位置
+	 */
+	private static long findChunkEnd(FileChannel channel, long start, long limit, long size) throws IOException {
+		// 从limit向前分段映射查找换行符
+		for (long end = limit; end > start; ) {
+			int              len    = (int) Math.min(SCAN_WINDOW_SIZE, end - start);
+			long             offset = end - len;
+			MappedByteBuffer buffer = channel.map(READ_ONLY, offset, len);
+
+			try {
+				for (int i = len - 1; i >= 0; i--) {
+					if (buffer.get(i) == '\n') {
+						return offset + i + 1;
+					}
+				}
+			} finally {
+				FileUtils.unmap(buffer);
+			}
+
+			end = offset;
+		}
+
+		// 单行超过分片大小，继续向后查找行结尾
+		for (long offset = limit; offset < size; offset += SCAN_WINDOW_SIZE) {
+			int              len    = (int) Math.min(SCAN_WINDOW_SIZE, size - offset);
+			MappedByteBuffer buffer = channel.map(READ_ONLY, offset, len);
+
+			try {
+				for (int i = 0; i < len; i++) {
+					if (buffer.get(i) == '\n') {
+						return offset + i + 1;
+					}
+				}
+			} finally {
+				FileUtils.unmap(buffer);
+			}
+		}
+
+		return size;
+	}
+
+	private static List<RASPFileChunk> chunkBinaryLog(File file, long chunkSize) throws IOException {
+		List<RASPFileChunk> chunks = new ArrayList<RASPFileChunk>();
+		RASPBinaryLogReader reader = new RASPBinaryLogReader(file);
+
+		try {
+			RASPBinaryLogReader.Block block = reader.nextBlock();
+
+			while (block != null) {
+				long start = block.getOffset();
+				long end   = start + block.getLength();
+
+				// 合并块直到超过分片大小，单个块超过分片大小时独占一个分片
+				while ((block = reader.nextBlock()) != null && block.getOffset() + block.getLength() - start <= chunkSize) {
+					end = block.getOffset() + block.getLength();
+				}
+
+				chunks.add(new RASPFileChunk(file, start, end - start));
+			}
+		} finally {
+			reader.close();
+		}
+
+		return chunks;
+	}
+
+}
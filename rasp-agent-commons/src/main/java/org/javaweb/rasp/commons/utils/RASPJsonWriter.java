@@ -0,0 +1,386 @@
+package org.javaweb.rasp.commons.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+
+/**
+ * 流式JSON输出，直接将JSON以UTF-8编码写入可复用的byte数组，不创建中间字符串，用于序列化RASP日志。
+ * <p>
+ * 输出格式和JsonUtils.GSON完全一致：紧凑格式、不转义HTML字符、对象中值为null的字段不输出、
+ * 字符串转义规则和Gson JsonWriter相同（控制字符使用小写十六进制的\\uXXXX，\\u2028和\\u2029也会转义）。
+ * <p>
+ * 非线程安全，可以通过getThreadLocalWriter获取当前线程复用的对象。
+ */
+public class RASPJsonWriter {
+
+	/**
+	 * 默认缓存大小
+	 */
+	private static final int DEFAULT_BUFFER_SIZE = 1024;
+
+	/**
+	 * 线程复用的writer最多保留的缓存大小，超过后重置时释放
+	 */
+	private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+
+	private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+	private static final ThreadLocal<RASPJsonWriter> WRITER = new ThreadLocal<RASPJsonWriter>() {
+		@Override
+		protected RASPJsonWriter initialValue() {
+			return new RASPJsonWriter();
+		}
+	};
+
+	private byte[] buf;
+
+	private int count;
+
+	/**
+	 * 当前层级是否已输出过元素，用于判断是否需要输出","
+	 */
+	private boolean[] nonEmpty = new boolean[16];
+
+	private int depth;
+
+	/**
+	 * 是否输出过不成对的代理字符，UTF-8无法表示这类字符，会被替换为"?"
+	 */
+	private boolean unpairedSurrogate;
+
+	public RASPJsonWriter() {
+		this(DEFAULT_BUFFER_SIZE);
+	}
+
+	public RASPJsonWriter(int size) {
+		this.buf = new byte[Math.max(size, 16)];
+	}
+
+	/**
+	 * 获取当前线程复用的writer，返回前会清空已写入的数据
+	 *
+	 * @return RASPJsonWriter
+	 */
+	public static RASPJsonWriter getThreadLocalWriter() {
+		RASPJsonWriter writer = WRITER.get();
+		writer.reset();
+
+		if (writer.buf.length > MAX_RETAINED_BUFFER_SIZE) {
+			writer.buf = new byte[DEFAULT_BUFFER_SIZE];
+		}
+
+		return writer;
+	}
+
+	public RASPJsonWriter beginObject() {
+		beforeValue();
+		write('{');
+		push();
+
+		return this;
+	}
+
+	public RASPJsonWriter endObject() {
+		depth--;
+		write('}');
+
+		return this;
+	}
+
+	public RASPJsonWriter beginArray() {
+		beforeValue();
+		write('[');
+		push();
+
+		return this;
+	}
+
+	public RASPJsonWriter endArray() {
+		depth--;
+		write(']');
+
+		return this;
+	}
+
+	/**
+	 * 输出字段名，必须在对象中调用，调用后必须输出字段值
+	 *
+	 * @param name 字段名
+	 * @return RASPJsonWriter
+	 */
+	public RASPJsonWriter name(String name) {
+		beforeValue();
+		writeString(name);
+		write(':');
+
+		// 字段值前不需要输出","
+		nonEmpty[depth] = false;
+
+		return this;
+	}
+
+	public RASPJsonWriter value(String value) {
+		if (value == null) {
+			return nullValue();
+		}
+
+		beforeValue();
+		writeString(value);
+
+		return this;
+	}
+
+	public RASPJsonWriter value(long value) {
+		beforeValue();
+		writeAscii(Long.toString(value));
+
+		return this;
+	}
+
+	public RASPJsonWriter value(boolean value) {
+		beforeValue();
+		writeAscii(value ? "true" : "false");
+
+		return this;
+	}
+
+	public RASPJsonWriter value(String[] values) {
+		if (values == null) {
+			return nullValue();
+		}
+
+		beginArray();
+
+		for (String value : values) {
+			value(value);
+		}
+
+		return endArray();
+	}
+
+	public RASPJsonWriter nullValue() {
+		beforeValue();
+		writeAscii("null");
+
+		return this;
+	}
+
+	/**
+	 * 输出字符串字段，值为null时不输出（和Gson默认配置一致）
+	 *
+	 * @param name  字段名
+	 * @param value 字段值
+	 * @return RASPJsonWriter
+	 */
+	public RASPJsonWriter field(String name, String value) {
+		return value != null ? name(name).value(value) : this;
+	}
+
+	public RASPJsonWriter field(String name, String[] values) {
+		return values != null ? name(name).value(values) : this;
+	}
+
+	public RASPJsonWriter field(String name, long value) {
+		return name(name).value(value);
+	}
+
+	public RASPJsonWriter field(String name, boolean value) {
+		return name(name).value(value);
+	}
+
+	/**
+	 * 输出枚举字段，和Gson一样使用枚举名称
+	 *
+	 * @param name  字段名
+	 * @param value 字段值
+	 * @return RASPJsonWriter
+	 */
+	public RASPJsonWriter field(String name, Enum<?> value) {
+		return value != null ? name(name).value(value.name()) : this;
+	}
+
+	private void beforeValue() {
+		if (depth > 0) {
+			if (nonEmpty[depth]) {
+				write(',');
+			}
+
+			nonEmpty[depth] = true;
+		}
+	}
+
+	private void push() {
+		if (++depth == nonEmpty.length) {
+			boolean[] newArray = new boolean[nonEmpty.length << 1];
+			System.arraycopy(nonEmpty, 0, newArray, 0, nonEmpty.length);
+			nonEmpty = newArray;
+		}
+
+		nonEmpty[depth] = false;
+	}
+
+	private void ensureCapacity(int minCapacity) {
+		if (minCapacity > buf.length) {
+			int newCapacity = Math.max(buf.length << 1, minCapacity);
+			byte[] newBuf = new byte[newCapacity];
+			System.arraycopy(buf, 0, newBuf, 0, count);
+			buf = newBuf;
+		}
+	}
+
+	private void write(char c) {
+		ensureCapacity(count + 1);
+		buf[count++] = (byte) c;
+	}
+
+	private void writeAscii(String str) {
+		int len = str.length();
+		ensureCapacity(count + len);
+
+		for (int i = 0; i < len; i++) {
+			buf[count++] = (byte) str.charAt(i);
+		}
+	}
+
+	/**
+	 * 输出转义后的JSON字符串，同时完成UTF-8编码
+	 */
+	private void writeString(String str) {
+		int len = str.length();
+
+		// 预留最常见的情况：全部是ASCII字符且不需要转义
+		ensureCapacity(count + len + 2);
+		buf[count++] = '"';
+
+		for (int i = 0; i < len; i++) {
+			char c = str.charAt(i);
+
+			if (c < 0x80) {
+				if (c < 0x20 || c == '"' || c == '\\') {
+					writeEscape(c);
+				} else {
+					ensureCapacity(count + 1);
+					buf[count++] = (byte) c;
+				}
+			} else if (c < 0x800) {
+				ensureCapacity(count + 2);
+				buf[count++] = (byte) (0xC0 | (c >> 6));
+				buf[count++] = (byte) (0x80 | (c & 0x3F));
+			} else if (c == 0x2028 || c == 0x2029) {
+				writeUnicodeEscape(c);
+			} else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(str.charAt(i + 1))) {
+				int codePoint = Character.toCodePoint(c, str.charAt(++i));
+
+				ensureCapacity(count + 4);
+				buf[count++] = (byte) (0xF0 | (codePoint >> 18));
+				buf[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+				buf[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+				buf[count++] = (byte) (0x80 | (codePoint & 0x3F));
+			} else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+				// 和String.getBytes("UTF-8")一致，不成对的代理字符输出为"?"
+				unpairedSurrogate = true;
+				ensureCapacity(count + 1);
+				buf[count++] = '?';
+			} else {
+				ensureCapacity(count + 3);
+				buf[count++] = (byte) (0xE0 | (c >> 12));
+				buf[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+				buf[count++] = (byte) (0x80 | (c & 0x3F));
+			}
+		}
+
+		ensureCapacity(count + 1);
+		buf[count++] = '"';
+	}
+
+	private void writeEscape(char c) {
+		switch (c) {
+			case '"':
+				writeAscii("\\\"");
+				break;
+			case '\\':
+				writeAscii("\\\\");
+				break;
+			case '\t':
+				writeAscii("\\t");
+				break;
+			case '\b':
+				writeAscii("\\b");
+				break;
+			case '\n':
+				writeAscii("\\n");
+				break;
+			case '\r':
+				writeAscii("\\r");
+				break;
+			case '\f':
+				writeAscii("\\f");
+				break;
+			default:
+				writeUnicodeEscape(c);
+		}
+	}
+
+	private void writeUnicodeEscape(char c) {
+		ensureCapacity(count + 6);
+		buf[count++] = '\\';
+		buf[count++] = 'u';
+		buf[count++] = HEX[(c >> 12) & 0xF];
+		buf[count++] = HEX[(c >> 8) & 0xF];
+		buf[count++] = HEX[(c >> 4) & 0xF];
+		buf[count++] = HEX[c & 0xF];
+	}
+
+	/**
+	 * 清空已写入的数据，复用缓存
+	 */
+	public void reset() {
+		this.count = 0;
+		this.depth = 0;
+		this.unpairedSurrogate = false;
+	}
+
+	/**
+	 * 是否输出过不成对的代理字符，此时toString和原始字符串不一致（字节内容和Gson输出编码后一致）
+	 *
+	 * @return 是否包含不成对的代理字符
+	 */
+	public boolean hasUnpairedSurrogate() {
+		return unpairedSurrogate;
+	}
+
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * 获取内部缓存，有效数据长度为size()，不能在reset之后使用
+	 *
+	 * @return 内部缓存
+	 */
+	public byte[] getBuffer() {
+		return buf;
+	}
+
+	public byte[] toByteArray() {
+		byte[] bytes = new byte[count];
+		System.arraycopy(buf, 0, bytes, 0, count);
+
+		return bytes;
+	}
+
+	public void writeTo(OutputStream out) throws IOException {
+		out.write(buf, 0, count);
+	}
+
+	@Override
+	public String toString() {
+		try {
+			return new String(buf, 0, count, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+}
@@ -0,0 +1,164 @@
+package org.javaweb.rasp.commons.utils;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * RC4加密并Base64编码的输出流，写入的数据逐字节加密后按3字节一组编码输出，不创建中间数组。
+ * <p>
+ * 输出结果和Base64.encodeBase64(RC4Utils.encryptionRC4Byte(...))一致（标准Base64，不换行，有填充）。
+ * 写完一条数据后必须调用finish输出剩余字节和填充字符，调用reset后可以复用对象加密下一条数据。非线程安全。
+ */
+public class RC4Base64OutputStream extends FilterOutputStream {
+
+	private static final byte[] BASE64_TABLE =
+			"ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes();
+
+	private static final byte PAD = '=';
+
+	/**
+	 * 输出缓存大小，必须是4的倍数
+	 */
+	private static final int BUFFER_SIZE = 1024;
+
+	/**
+	 * RC4密钥状态
+	 */
+	private final byte[] state = new byte[256];
+
+	private int x;
+
+	private int y;
+
+	/**
+	 * 未凑满3字节的加密数据
+	 */
+	private int carry;
+
+	private int carryLength;
+
+	/**
+	 * Base64输出缓存
+	 */
+	private final byte[] buf = new byte[BUFFER_SIZE];
+
+	private int count;
+
+	public RC4Base64OutputStream(OutputStream out, RC4KeySchedule keySchedule) {
+		super(out);
+		reset(keySchedule);
+	}
+
+	/**
+	 * 重置加密状态，开始加密新的数据，未调用finish的数据会被丢弃
+	 *
+	 * @param keySchedule 密钥编排结果
+	 */
+	public void reset(RC4KeySchedule keySchedule) {
+		keySchedule.copyState(state);
+
+		this.x = 0;
+		this.y = 0;
+		this.carry = 0;
+		this.carryLength = 0;
+		this.count = 0;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		x = x + 1 & 0xFF;
+		y = (state[x] & 0xFF) + y & 0xFF;
+
+		byte tmp = state[x];
+		state[x] = state[y];
+		state[y] = tmp;
+
+		int k = state[(state[x] & 0xFF) + (state[y] & 0xFF) & 0xFF];
+
+		carry = (carry << 8) | ((b ^ k) & 0xFF);
+
+		if (++carryLength == 3) {
+			if (count == BUFFER_SIZE) {
+				flushBuffer();
+			}
+
+			buf[count++] = BASE64_TABLE[(carry >> 18) & 0x3F];
+			buf[count++] = BASE64_TABLE[(carry >> 12) & 0x3F];
+			buf[count++] = BASE64_TABLE[(carry >> 6) & 0x3F];
+			buf[count++] = BASE64_TABLE[carry & 0x3F];
+
+			carry = 0;
+			carryLength = 0;
+		}
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if ((off | len | (b.length - (len + off)) | (off + len)) < 0) {
+			throw new IndexOutOfBoundsException();
+		}
+
+		for (int i = off, end = off + len; i < end; i++) {
+			write(b[i]);
+		}
+	}
+
+	/**
+	 * 输出剩余的加密数据和Base64填充字符，完成当前数据的加密
+	 *
+	 * @throws IOException IO异常
+	 */
+	public void finish() throws IOException {
+		if (carryLength > 0) {
+			if (count == BUFFER_SIZE) {
+				flushBuffer();
+			}
+
+			if (carryLength == 1) {
+				buf[count++] = BASE64_TABLE[(carry >> 2) & 0x3F];
+				buf[count++] = BASE64_TABLE[(carry << 4) & 0x3F];
+				buf[count++] = PAD;
+			} else {
+				buf[count++] = BASE64_TABLE[(carry >> 10) & 0x3F];
+				buf[count++] = BASE64_TABLE[(carry >> 4) & 0x3F];
+				buf[count++] = BASE64_TABLE[(carry << 2) & 0x3F];
+			}
+
+			buf[count++] = PAD;
+
+			carry = 0;
+			carryLength = 0;
+		}
+
+		flushBuffer();
+	}
+
+	private void flushBuffer() throws IOException {
+		if (count > 0) {
+			out.write(buf, 0, count);
+			count = 0;
+		}
+	}
+
+	/**
+	 * 刷新已编码的数据，不足3字节的数据需要等待后续写入或调用finish
+	 *
+	 * @throws IOException IO异常
+	 */
+	@Override
+	public void flush() throws IOException {
+		flushBuffer();
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			finish();
+		} finally {
+			out.close();
+		}
+	}
+
+}
@@ -0,0 +1,109 @@
+package org.javaweb.rasp.commons.utils;
+
+import java.io.UnsupportedEncodingException;
+
+import static org.javaweb.rasp.commons.constants.RASPConstants.DEFAULT_ENCODING;
+
+/**
+ * RC4密钥编排结果（KSA），同一个key只需要计算一次，每次加密时复制一份状态使用。
+ * <p>
+ * 日志加密使用的key基本不会变化，因此只缓存最近一次使用的key。
+ */
+public class RC4KeySchedule {
+
+	/**
+	 * 最近一次使用的密钥编排结果
+	 */
+	private static volatile RC4KeySchedule lastSchedule;
+
+	private final String key;
+
+	private final byte[] state;
+
+	private RC4KeySchedule(String key, byte[] state) {
+		this.key = key;
+		this.state = state;
+	}
+
+	/**
+	 * 获取key对应的密钥编排结果
+	 *
+	 * @param key 加密key
+	 * @return 密钥编排结果，key为空时返回null
+	 */
+	public static RC4KeySchedule getKeySchedule(String key) {
+		RC4KeySchedule schedule = lastSchedule;
+
+		if (schedule != null && schedule.key.equals(key)) {
+			return schedule;
+		}
+
+		if (key == null) {
+			return null;
+		}
+
+		byte[] state = initState(key);
+
+		if (state == null) {
+			return null;
+		}
+
+		return lastSchedule = new RC4KeySchedule(key, state);
+	}
+
+	private static byte[] initState(String aKey) {
+		byte[] bytes = null;
+
+		try {
+			bytes = aKey.getBytes(DEFAULT_ENCODING);
+		} catch (UnsupportedEncodingException e) {
+			e.printStackTrace();
+		}
+
+		if (bytes == null || bytes.length == 0) {
+			return null;
+		}
+
+		byte[] state = new byte[256];
+
+		for (int i = 0; i < 256; i++) {
+			state[i] = ((byte) i);
+		}
+
+		int index1 = 0;
+		int index2 = 0;
+
+		for (int i = 0; i < 256; i++) {
+			index2 = (bytes[index1] & 0xFF) + (state[i] & 0xFF) + index2 & 0xFF;
+			byte tmp = state[i];
+			state[i] = state[index2];
+			state[index2] = tmp;
+			index1 = (index1 + 1) % bytes.length;
+		}
+
+		return state;
+	}
+
+	/**
+	 * 复制密钥状态，加密过程会修改状态，每次加密都需要使用新的副本
+	 *
+	 * @param dst 长度为256的数组
+	 */
+	public void copyState(byte[] dst) {
+		System.arraycopy(state, 0, dst, 0, 256);
+	}
+
+	/**
+	 * 创建密钥状态副本
+	 *
+	 * @return 密钥状态
+	 */
+	public byte[] newState() {
+		return state.clone();
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+}
@@ -0,0 +1,97 @@
+package org.javaweb.rasp.benchmarks;
+
+import org.javaweb.rasp.commons.utils.AntPathMatcherUtils;
+import org.javaweb.rasp.commons.utils.AntPathPatternSet;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AntPathMatcherUtils.pathMatch性能测试，模拟使用白名单/黑名单规则匹配请求路径，按规则条数分别测试逐条匹配和AntPathPatternSet一次匹配
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AntPathMatcherBenchmark {
+
+	@Param({"1", "10", "100"})
+	public int patternCount;
+
+	private String[] patterns;
+
+	private AntPathPatternSet patternSet;
+
+	private String hitPath;
+
+	private String missPath;
+
+	@Setup
+	public void setup() {
+		String sep = AntPathMatcherUtils.DEFAULT_PATH_SEPARATOR;
+
+		this.patterns = new String[patternCount];
+
+		for (int i = 0; i < patternCount; i++) {
+			switch (i % 4) {
+				case 0:
+					patterns[i] = sep + "api" + i + sep + "**";
+					break;
+				case 1:
+					patterns[i] = sep + "static" + i + sep + "*.js";
+					break;
+				case 2:
+					patterns[i] = sep + "admin" + i + sep + "user?" + sep + "list";
+					break;
+				default:
+					patterns[i] = sep + "upload" + i + sep + "**" + sep + "*.jsp";
+			}
+		}
+
+		// 命中最后一条规则，需要遍历所有规则
+		String last = patterns[patternCount - 1];
+
+		this.hitPath = last.replace("**", "a" + sep + "b").replace("*", "app").replace('?', '1');
+		this.missPath = sep + "index" + sep + "login.do";
+		this.patternSet = new AntPathPatternSet(Arrays.asList(patterns));
+
+		// 两种匹配方式的结果必须一致，否则性能对比没有意义
+		if (patternSet.match(hitPath) != match(hitPath) || patternSet.match(missPath) != match(missPath)) {
+			throw new IllegalStateException("AntPathPatternSet匹配结果和逐条匹配不一致：" + Arrays.toString(patterns));
+		}
+	}
+
+	private boolean match(String path) {
+		for (String pattern : patterns) {
+			if (AntPathMatcherUtils.pathMatch(pattern, path)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	@Benchmark
+	public boolean hit() {
+		return match(hitPath);
+	}
+
+	@Benchmark
+	public boolean miss() {
+		return match(missPath);
+	}
+
+	@Benchmark
+	public boolean patternSetHit() {
+		return patternSet.match(hitPath);
+	}
+
+	@Benchmark
+	public boolean patternSetMiss() {
+		return patternSet.match(missPath);
+	}
+
+}
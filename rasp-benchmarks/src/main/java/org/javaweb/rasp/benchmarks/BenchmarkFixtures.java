@@ -0,0 +1,274 @@
+package org.javaweb.rasp.benchmarks;
+
+import org.javaweb.rasp.commons.MethodHookEvent;
+import org.javaweb.rasp.commons.attack.RASPParameterPosition;
+import org.javaweb.rasp.commons.cache.RASPCachedParameter;
+import org.javaweb.rasp.commons.servlet.HttpServletRequestProxy;
+import org.javaweb.rasp.commons.servlet.HttpServletResponseProxy;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.rasp.proxy.loader.HookEvent;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.javaweb.rasp.commons.constants.RASPConstants.*;
+
+/**
+ * 性能测试公共数据：RASP配置文件、模拟的HttpServletRequest/Response、请求参数
+ */
+public final class BenchmarkFixtures {
+
+	/**
+	 * 模拟的Web应用contextPath
+	 */
+	public static final String CONTEXT_PATH = "/benchmark";
+
+	/**
+	 * 是否已初始化RASP目录
+	 */
+	private static boolean initialized;
+
+	private BenchmarkFixtures() {
+	}
+
+	/**
+	 * 初始化RASP安装目录，RASPConfiguration以rasp-agent-commons所在目录作为RASP安装目录，
+	 * 所以必须在RASPConfiguration类初始化之前写入配置文件
+	 */
+	public static synchronized void initAgentHome() {
+		if (initialized) {
+			return;
+		}
+
+		try {
+			// 只加载不初始化RASPConfiguration，获取RASP安装目录
+			Class<?> clazz = Class.forName(
+					"org.javaweb.rasp.commons.config.RASPConfiguration", false,
+					BenchmarkFixtures.class.getClassLoader()
+			);
+
+			File raspDir   = new File(clazz.getProtectionDomain().getCodeSource().getLocation().getFile());
+			File configDir = new File(raspDir.getParentFile(), "config");
+			File appsDir   = new File(configDir, "apps");
+
+			if (!appsDir.exists() && !appsDir.mkdirs()) {
+				throw new IOException("创建目录：" + appsDir + "失败！");
+			}
+
+			writeConfig(new File(configDir, AGENT_CONFIG_FILE_NAME),
+					"log_version=3\n" +
+							"log.level=ERROR\n" +
+							"site_id=benchmark\n" +
+							"system.rc4_key=benchmark\n"
+			);
+
+			writeConfig(new File(configDir, AGENT_RULES_FILE_NAME), "disable_cmd=false\n");
+
+			String appConfig = "app_id=benchmark\n" +
+					"modules.open=cmd\n" +
+					"silent=false\n" +
+					"servlet_stream=true\n" +
+					"servlet_stream_max_cache_size=10485760\n" +
+					"whitelist=W10=\n" +
+					"patch_list=W10=\n";
+
+			writeConfig(new File(configDir, DEFAULT_AGENT_APP_FILE_NAME), appConfig);
+			writeConfig(new File(appsDir, CONTEXT_PATH.substring(1) + ".properties"), appConfig);
+
+			initialized = true;
+		} catch (Exception e) {
+			throw new RuntimeException("初始化RASP性能测试目录失败：" + e, e);
+		}
+	}
+
+	private static void writeConfig(File file, String content) throws IOException {
+		OutputStream out = new FileOutputStream(file);
+
+		try {
+			out.write(content.getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * 生成请求参数，参数名为p0-pN，参数值模拟常见的表单值
+	 *
+	 * @param count 参数个数
+	 * @return 请求参数Map
+	 */
+	public static Map<String, String[]> createParameterMap(int count) {
+		Map<String, String[]> map = new LinkedHashMap<String, String[]>();
+
+		for (int i = 0; i < count; i++) {
+			map.put("p" + i, new String[]{"value-" + i + "-" + Integer.toHexString(i * 31 + 7)});
+		}
+
+		return map;
+	}
+
+	/**
+	 * 将请求参数转换成RASP缓存参数对象
+	 *
+	 * @param parameterMap 请求参数
+	 * @return 缓存参数列表
+	 */
+	public static List<RASPCachedParameter> createCachedParameters(Map<String, String[]> parameterMap) {
+		List<RASPCachedParameter> list = new ArrayList<RASPCachedParameter>();
+
+		for (Map.Entry<String, String[]> entry : parameterMap.entrySet()) {
+			list.add(new RASPCachedParameter(entry.getKey(), entry.getValue(), RASPParameterPosition.PARAMETER_MAP));
+		}
+
+		return list;
+	}
+
+	/**
+	 * 生成QueryString
+	 *
+	 * @param parameterMap 请求参数
+	 * @return QueryString
+	 */
+	public static String createQueryString(Map<String, String[]> parameterMap) {
+		StringBuilder sb = new StringBuilder();
+
+		for (Map.Entry<String, String[]> entry : parameterMap.entrySet()) {
+			if (sb.length() > 0) {
+				sb.append('&');
+			}
+
+			sb.append(entry.getKey()).append('=').append(entry.getValue()[0]);
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * 使用动态代理创建模拟的HttpServletRequest
+	 *
+	 * @param servletPath   Servlet路径
+	 * @param parameterMap  请求参数
+	 * @param contentLength 请求体长度
+	 * @return HttpServletRequestProxy
+	 */
+	public static HttpServletRequestProxy createRequest(String servletPath, Map<String, String[]> parameterMap,
+	                                                    int contentLength) {
+
+		final Map<String, Object> values = new HashMap<String, Object>();
+		String                    uri    = CONTEXT_PATH + servletPath;
+
+		values.put("getServletPath", servletPath);
+		values.put("getRequestURI", uri);
+		values.put("getContextPath", CONTEXT_PATH);
+		values.put("getMethod", "POST");
+		values.put("getScheme", "http");
+		values.put("getServerName", "localhost");
+		values.put("getServerPort", 8080);
+		values.put("getRemoteAddr", "192.168.1.100");
+		values.put("getLocalAddr", "192.168.1.1");
+		values.put("getContentType", "application/x-www-form-urlencoded");
+		values.put("getContentLength", contentLength);
+		values.put("getQueryString", createQueryString(parameterMap));
+		values.put("getParameterMap", parameterMap);
+		values.put("getHeaderNames", Collections.enumeration(Collections.<String>emptyList()));
+
+		return (HttpServletRequestProxy) Proxy.newProxyInstance(
+				BenchmarkFixtures.class.getClassLoader(), new Class[]{HttpServletRequestProxy.class},
+				new FixtureInvocationHandler(values) {
+					@Override
+					Object invoke(String name, Object[] args) {
+						if ("getRequestURL".equals(name)) {
+							return new StringBuffer("http://localhost:8080").append(values.get("getRequestURI"));
+						} else if ("getHeader".equals(name)) {
+							return "User-Agent".equalsIgnoreCase((String) args[0]) ? "Mozilla/5.0 (benchmark)" : null;
+						}
+
+						return super.invoke(name, args);
+					}
+				}
+		);
+	}
+
+	/**
+	 * 使用动态代理创建模拟的HttpServletResponse
+	 *
+	 * @return HttpServletResponseProxy
+	 */
+	public static HttpServletResponseProxy createResponse() {
+		return (HttpServletResponseProxy) Proxy.newProxyInstance(
+				BenchmarkFixtures.class.getClassLoader(), new Class[]{HttpServletResponseProxy.class},
+				new FixtureInvocationHandler(new HashMap<String, Object>())
+		);
+	}
+
+	/**
+	 * 创建Hook事件
+	 *
+	 * @param thisObject Hook对象
+	 * @param className  Hook类名
+	 * @param methodName Hook方法名
+	 * @param argsDesc   Hook方法描述符
+	 * @param args       Hook方法参数
+	 * @return MethodHookEvent
+	 */
+	public static MethodHookEvent createEvent(Object thisObject, String className, String methodName,
+	                                          String argsDesc, Object[] args) {
+
+		return new MethodHookEvent(new HookEvent(thisObject, className, methodName, argsDesc, args, null, 0, 0));
+	}
+
+	private static class FixtureInvocationHandler implements InvocationHandler {
+
+		private final Map<String, Object> values;
+
+		FixtureInvocationHandler(Map<String, Object> values) {
+			this.values = values;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) {
+			String name = method.getName();
+
+			if ("hashCode".equals(name)) {
+				return System.identityHashCode(proxy);
+			} else if ("equals".equals(name)) {
+				return proxy == args[0];
+			} else if ("toString".equals(name)) {
+				return "Benchmark" + method.getDeclaringClass().getSimpleName();
+			}
+
+			Object value = invoke(name, args);
+
+			if (value == null) {
+				Class<?> returnType = method.getReturnType();
+
+				// 基础类型返回值不能为null
+				if (returnType == int.class) {
+					return -1;
+				} else if (returnType == boolean.class) {
+					return false;
+				} else if (returnType == long.class) {
+					return -1L;
+				}
+			}
+
+			return value;
+		}
+
+		Object invoke(String name, Object[] args) {
+			return values.get(name);
+		}
+
+	}
+
+}
@@ -0,0 +1,154 @@
+package org.javaweb.rasp.benchmarks;
+
+import org.javaweb.rasp.commons.MethodHookEvent;
+import org.javaweb.rasp.commons.attack.RASPAttackInfo;
+import org.javaweb.rasp.commons.context.RASPHttpRequestContext;
+import org.javaweb.rasp.commons.context.RASPHttpRequestContextManager;
+import org.javaweb.rasp.commons.servlet.HttpServletRequestProxy;
+import org.slf4j.Logger;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.File;
+import java.rasp.proxy.loader.RASPModuleType;
+import java.util.Map;
+
+import static org.javaweb.rasp.benchmarks.BenchmarkFixtures.*;
+
+/**
+ * 性能测试使用的RASP上下文，所有防御模块都需要检测，日志输出到NOPLogger
+ */
+public class BenchmarkRequestContext extends RASPHttpRequestContext {
+
+	private final boolean webApiRequest;
+
+	private final int contentLength;
+
+	public BenchmarkRequestContext(HttpServletRequestProxy request, boolean webApiRequest, int contentLength) {
+		super(request, createResponse(), createEvent(null, "javax.servlet.http.HttpServlet", "service",
+				"(Ljavax/servlet/ServletRequest;Ljavax/servlet/ServletResponse;)V", new Object[0]),
+				BenchmarkRequestContext.class.getClassLoader()
+		);
+
+		this.webApiRequest = webApiRequest;
+		this.contentLength = contentLength;
+	}
+
+	/**
+	 * 创建RASP上下文
+	 *
+	 * @param parameterMap  请求参数
+	 * @param webApiRequest 是否是API请求
+	 * @param contentLength 请求体长度
+	 * @return RASP上下文
+	 */
+	public static BenchmarkRequestContext create(Map<String, String[]> parameterMap, boolean webApiRequest,
+	                                             int contentLength) {
+
+		initAgentHome();
+
+		return new BenchmarkRequestContext(
+				createRequest("/index.do", parameterMap, contentLength), webApiRequest, contentLength
+		);
+	}
+
+	/**
+	 * 绑定RASP上下文到当前线程
+	 */
+	public void bind() {
+		RASPHttpRequestContextManager.setContext(this);
+	}
+
+	/**
+	 * 清除当前线程的RASP上下文，同时关闭context
+	 */
+	public void release() {
+		ContextManager.release(this);
+	}
+
+	@Override
+	protected void initContext() {
+		this.documentRoot = new File(System.getProperty("java.io.tmpdir"));
+	}
+
+	@Override
+	public void addAttackInfo(RASPAttackInfo attack) {
+		raspAttackInfoList.add(attack);
+	}
+
+	@Override
+	public boolean mustFilter(RASPModuleType moduleType) {
+		return mustFilter;
+	}
+
+	@Override
+	public Logger getAppLogger(String fileName, String loggerPrefix, String fileSize) {
+		return NOPLogger.NOP_LOGGER;
+	}
+
+	@Override
+	public Logger initAccessLogger() {
+		return NOPLogger.NOP_LOGGER;
+	}
+
+	@Override
+	public Logger initAttackLogger() {
+		return NOPLogger.NOP_LOGGER;
+	}
+
+	@Override
+	public Logger initTraceLogger() {
+		return NOPLogger.NOP_LOGGER;
+	}
+
+	@Override
+	public boolean isWebApiRequest() {
+		return webApiRequest;
+	}
+
+	@Override
+	public void preJSPRequest(MethodHookEvent event) {
+	}
+
+	@Override
+	public boolean isJspFile() {
+		return false;
+	}
+
+	@Override
+	public boolean isInternalAPIRequest() {
+		return false;
+	}
+
+	@Override
+	public boolean isJsonRequest() {
+		return webApiRequest;
+	}
+
+	@Override
+	public boolean isXmlRequest() {
+		return false;
+	}
+
+	@Override
+	public int getContentLength() {
+		return contentLength;
+	}
+
+	@Override
+	public void setDeserializationStatus() {
+	}
+
+	@Override
+	public boolean isDeserialization() {
+		return false;
+	}
+
+	private static class ContextManager extends RASPHttpRequestContextManager {
+
+		static void release(RASPHttpRequestContext context) {
+			removeContext(context);
+		}
+
+	}
+
+}
@@ -0,0 +1,58 @@
+package org.javaweb.rasp.benchmarks;
+
+import org.javaweb.rasp.commons.log.RASPLog;
+import org.javaweb.rasp.commons.utils.EncryptUtils;
+import org.javaweb.rasp.commons.utils.JsonUtils;
+import org.javaweb.rasp.commons.utils.RASPJsonWriter;
+import org.javaweb.rasp.commons.utils.RC4Utils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.commons.codec.binary.Base64.encodeBase64;
+import static org.javaweb.rasp.benchmarks.BenchmarkFixtures.createParameterMap;
+
+/**
+ * 加密日志性能测试：base64RC4为逐步创建字符串和数组的加密方式，enContent为直接加密JSON字节的流式加密方式
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncryptUtilsBenchmark {
+
+	private static final String RC4_KEY = "javaweb-rasp";
+
+	@Param({"1", "10", "100"})
+	public int parameterCount;
+
+	private BenchmarkRequestContext context;
+
+	private RASPLog log;
+
+	@Setup
+	public void setup() {
+		this.context = BenchmarkRequestContext.create(createParameterMap(parameterCount), false, -1);
+		this.log = new RASPLog(context);
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.release();
+	}
+
+	@Benchmark
+	public String base64RC4() throws Exception {
+		return new String(encodeBase64(RC4Utils.encryptionRC4Byte(JsonUtils.toJson(log), RC4_KEY)), "UTF-8");
+	}
+
+	@Benchmark
+	public String enContent() {
+		RASPJsonWriter writer = JsonUtils.writeJson(log);
+
+		return EncryptUtils.enContent(writer.getBuffer(), 0, writer.size(), RC4_KEY);
+	}
+
+}
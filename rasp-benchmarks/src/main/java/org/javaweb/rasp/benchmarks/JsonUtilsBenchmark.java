@@ -0,0 +1,50 @@
+package org.javaweb.rasp.benchmarks;
+
+import org.javaweb.rasp.commons.log.RASPLog;
+import org.javaweb.rasp.commons.utils.JsonUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.javaweb.rasp.benchmarks.BenchmarkFixtures.createParameterMap;
+
+/**
+ * JsonUtils.toJson(RASPLog)性能测试，RASPLog中的queryString长度随请求参数个数增长，gsonToJson为使用Gson反射序列化的对照组
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonUtilsBenchmark {
+
+	@Param({"1", "10", "100"})
+	public int parameterCount;
+
+	private BenchmarkRequestContext context;
+
+	private RASPLog log;
+
+	@Setup
+	public void setup() {
+		this.context = BenchmarkRequestContext.create(createParameterMap(parameterCount), false, -1);
+		this.log = new RASPLog(context);
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.release();
+	}
+
+	@Benchmark
+	public String toJson() {
+		return JsonUtils.toJson(log);
+	}
+
+	@Benchmark
+	public String gsonToJson() {
+		return JsonUtils.GSON.toJson(log);
+	}
+
+}
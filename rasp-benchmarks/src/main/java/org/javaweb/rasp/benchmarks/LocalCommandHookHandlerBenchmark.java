@@ -0,0 +1,81 @@
+package org.javaweb.rasp.benchmarks;
+
+import org.javaweb.rasp.agent.hooks.cmd.handler.LocalCommandHookHandler;
+import org.javaweb.rasp.commons.MethodHookEvent;
+import org.javaweb.rasp.commons.cache.RASPCachedParameter;
+import org.javaweb.rasp.commons.cache.RASPParameterSet;
+import org.openjdk.jmh.annotations.*;
+
+import java.rasp.proxy.loader.HookResult;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.javaweb.rasp.benchmarks.BenchmarkFixtures.*;
+
+/**
+ * LocalCommandHookHandler.processCommand性能测试，按当前请求的参数个数分别测试命令未命中和命中请求参数的情况
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LocalCommandHookHandlerBenchmark {
+
+	@Param({"1", "10", "100", "1000"})
+	public int parameterCount;
+
+	private BenchmarkRequestContext context;
+
+	private MethodHookEvent event;
+
+	private List<String> safeCommand;
+
+	private List<String> attackCommand;
+
+	@Setup
+	public void setup() {
+		Map<String, String[]> parameterMap = createParameterMap(parameterCount);
+
+		this.context = BenchmarkRequestContext.create(parameterMap, false, -1);
+		this.safeCommand = Arrays.asList("/bin/sh", "-c", "ls -la /tmp");
+
+		// 命令参数和最后一个请求参数值完全一致
+		String[] lastValue = parameterMap.get("p" + (parameterCount - 1));
+		this.attackCommand = Arrays.asList("/bin/sh", "-c", lastValue[0]);
+
+		RASPParameterSet<RASPCachedParameter> set = context.getCachedRequest().getCachedParameter();
+
+		for (RASPCachedParameter parameter : createCachedParameters(parameterMap)) {
+			set.cacheParameter(parameter);
+		}
+
+		context.bind();
+
+		this.event = createEvent(null, "java.lang.ProcessBuilder", "start", "()Ljava/lang/Process;", new Object[0]);
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.release();
+	}
+
+	@Benchmark
+	public HookResult<?> safeCommand() {
+		return LocalCommandHookHandler.processCommand(safeCommand, event);
+	}
+
+	@Benchmark
+	public HookResult<?> attackCommand() {
+		HookResult<?> result = LocalCommandHookHandler.processCommand(attackCommand, event);
+
+		// 清除攻击记录，避免攻击集合不断增长
+		context.getRaspAttackInfoList().clear();
+
+		return result;
+	}
+
+}
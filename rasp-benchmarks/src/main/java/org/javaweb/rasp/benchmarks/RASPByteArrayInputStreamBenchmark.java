@@ -0,0 +1,94 @@
+package org.javaweb.rasp.benchmarks;
+
+import org.javaweb.rasp.commons.cache.RASPByteArrayInputStream;
+import org.javaweb.rasp.commons.cache.RASPUnsyncByteArrayInputStream;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 请求体读取性能测试，对比同步的RASPByteArrayInputStream和非同步的RASPUnsyncByteArrayInputStream，
+ * 模拟反序列化实现按字节读取、按4KB读取和使用ByteBuffer视图读取完整的请求体。
+ * <p>
+ * JDK 15以前默认开启偏向锁，对比无偏向锁的JDK时需要添加参数：-jvmArgs -XX:-UseBiasedLocking
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RASPByteArrayInputStreamBenchmark {
+
+	@Param({"4096", "65536", "1048576"})
+	public int bodySize;
+
+	private byte[] body;
+
+	private byte[] buffer;
+
+	@Setup
+	public void setup() {
+		this.body = new byte[bodySize];
+		this.buffer = new byte[4096];
+
+		Arrays.fill(body, (byte) 'a');
+	}
+
+	private static int readBytes(RASPByteArrayInputStream in) {
+		int sum = 0;
+		int b;
+
+		while ((b = in.read()) != -1) {
+			sum += b;
+		}
+
+		return sum;
+	}
+
+	private int readArray(RASPByteArrayInputStream in) {
+		int sum = 0;
+		int n;
+
+		while ((n = in.read(buffer, 0, buffer.length)) != -1) {
+			sum += n;
+		}
+
+		return sum;
+	}
+
+	@Benchmark
+	public int syncReadByte() {
+		return readBytes(new RASPByteArrayInputStream(body, 0, body.length));
+	}
+
+	@Benchmark
+	public int unsyncReadByte() {
+		return readBytes(new RASPUnsyncByteArrayInputStream(body, 0, body.length));
+	}
+
+	@Benchmark
+	public int syncReadArray() {
+		return readArray(new RASPByteArrayInputStream(body, 0, body.length));
+	}
+
+	@Benchmark
+	public int unsyncReadArray() {
+		return readArray(new RASPUnsyncByteArrayInputStream(body, 0, body.length));
+	}
+
+	@Benchmark
+	public int unsyncByteBuffer() {
+		ByteBuffer view = new RASPUnsyncByteArrayInputStream(body, 0, body.length).asByteBuffer();
+		int        sum  = 0;
+
+		while (view.hasRemaining()) {
+			sum += view.get();
+		}
+
+		return sum;
+	}
+
+}
@@ -0,0 +1,62 @@
+package org.javaweb.rasp.benchmarks;
+
+import org.javaweb.rasp.commons.cache.RASPByteArrayOutputStream;
+import org.javaweb.rasp.commons.cache.RASPChunkedOutputStream;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 请求体缓存性能测试，对比按倍数扩容的RASPByteArrayOutputStream和使用分片池的RASPChunkedOutputStream，
+ * 模拟Servlet输入流每次读取8KB并缓存完整的请求体
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RASPChunkedOutputStreamBenchmark {
+
+	@Param({"4096", "1048576", "10485760"})
+	public int bodySize;
+
+	private byte[] buffer;
+
+	@Setup
+	public void setup() {
+		this.buffer = new byte[8192];
+		Arrays.fill(buffer, (byte) 'a');
+	}
+
+	@Benchmark
+	public int byteArrayOutputStream() throws IOException {
+		RASPByteArrayOutputStream out = new RASPByteArrayOutputStream();
+
+		for (int i = 0; i < bodySize; i += buffer.length) {
+			out.write(buffer, 0, Math.min(buffer.length, bodySize - i));
+		}
+
+		int size = out.size();
+		out.close();
+
+		return size;
+	}
+
+	@Benchmark
+	public int chunkedOutputStream() {
+		RASPChunkedOutputStream out = new RASPChunkedOutputStream(bodySize);
+
+		for (int i = 0; i < bodySize; i += buffer.length) {
+			out.write(buffer, 0, Math.min(buffer.length, bodySize - i));
+		}
+
+		int size = out.size();
+		out.close();
+
+		return size;
+	}
+
+}
@@ -0,0 +1,73 @@
+package org.javaweb.rasp.benchmarks;
+
+import org.javaweb.rasp.commons.cache.RASPOutputStreamCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RASPOutputStreamCache.write性能测试，模拟缓存一个完整的请求体，按请求体大小分别测试单字节写入和批量写入；
+ * 每次调用后和请求结束时一样释放缓存，分片归还到分片池，测试的是分片池复用时的稳定状态
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RASPOutputStreamCacheBenchmark {
+
+	@Param({"64", "4096", "65536", "1048576"})
+	public int bodySize;
+
+	private BenchmarkRequestContext context;
+
+	private byte[] body;
+
+	@Setup
+	public void setup() {
+		this.context = BenchmarkRequestContext.create(
+				Collections.<String, String[]>emptyMap(), false, bodySize
+		);
+
+		this.body = new byte[bodySize];
+		Arrays.fill(body, (byte) 'a');
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.release();
+	}
+
+	@Benchmark
+	public int writeByte() throws IOException {
+		RASPOutputStreamCache cache = new RASPOutputStreamCache(context, null);
+
+		try {
+			for (byte b : body) {
+				cache.write(b);
+			}
+
+			return cache.size();
+		} finally {
+			cache.release();
+		}
+	}
+
+	@Benchmark
+	public int writeArray() throws IOException {
+		RASPOutputStreamCache cache = new RASPOutputStreamCache(context, null);
+
+		try {
+			cache.write(body, 0, body.length);
+
+			return cache.size();
+		} finally {
+			cache.release();
+		}
+	}
+
+}
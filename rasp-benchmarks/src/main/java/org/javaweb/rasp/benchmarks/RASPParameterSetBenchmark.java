@@ -0,0 +1,70 @@
+package org.javaweb.rasp.benchmarks;
+
+import org.javaweb.rasp.commons.cache.RASPCachedParameter;
+import org.javaweb.rasp.commons.cache.RASPParameterSet;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.javaweb.rasp.benchmarks.BenchmarkFixtures.createCachedParameters;
+import static org.javaweb.rasp.benchmarks.BenchmarkFixtures.createParameterMap;
+
+/**
+ * RASPParameterSet.cacheParameter性能测试，每次调用缓存一个请求的所有参数，按请求参数个数分别测试
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RASPParameterSetBenchmark {
+
+	@Param({"1", "10", "100", "1000"})
+	public int parameterCount;
+
+	private BenchmarkRequestContext context;
+
+	private List<RASPCachedParameter> parameters;
+
+	@Setup
+	public void setup() {
+		Map<String, String[]> parameterMap = createParameterMap(parameterCount);
+
+		this.context = BenchmarkRequestContext.create(parameterMap, false, -1);
+		this.parameters = createCachedParameters(parameterMap);
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.release();
+	}
+
+	@Benchmark
+	public RASPParameterSet<RASPCachedParameter> cacheParameter() {
+		RASPParameterSet<RASPCachedParameter> set = new RASPParameterSet<RASPCachedParameter>(context);
+
+		for (RASPCachedParameter parameter : parameters) {
+			set.cacheParameter(parameter);
+		}
+
+		return set;
+	}
+
+	@Benchmark
+	public RASPParameterSet<RASPCachedParameter> cacheDuplicateParameter() {
+		RASPParameterSet<RASPCachedParameter> set = new RASPParameterSet<RASPCachedParameter>(context);
+
+		// 同一个参数会被不同的Hook点（getParameter、getParameterMap等）重复缓存
+		for (int i = 0; i < 2; i++) {
+			for (RASPCachedParameter parameter : parameters) {
+				set.cacheParameter(parameter);
+			}
+		}
+
+		return set;
+	}
+
+}
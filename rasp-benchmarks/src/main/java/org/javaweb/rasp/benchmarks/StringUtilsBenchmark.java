@@ -0,0 +1,57 @@
+package org.javaweb.rasp.benchmarks;
+
+import org.javaweb.rasp.commons.utils.StringUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * StringUtils.toLowerCase性能测试，按字符串长度分别测试纯小写和大小写混合的字符串
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StringUtilsBenchmark {
+
+	@Param({"16", "128", "1024", "8192"})
+	public int length;
+
+	private String lowerCase;
+
+	private String mixedCase;
+
+	@Setup
+	public void setup() {
+		StringBuilder lower = new StringBuilder(length);
+		StringBuilder mixed = new StringBuilder(length);
+
+		for (int i = 0; i < length; i++) {
+			char chr = (char) ('a' + i % 26);
+
+			lower.append(chr);
+			mixed.append(i % 3 == 0 ? Character.toUpperCase(chr) : chr);
+		}
+
+		this.lowerCase = lower.toString();
+		this.mixedCase = mixed.toString();
+	}
+
+	@Benchmark
+	public String toLowerCaseLower() {
+		return StringUtils.toLowerCase(lowerCase);
+	}
+
+	@Benchmark
+	public String toLowerCaseMixed() {
+		return StringUtils.toLowerCase(mixedCase);
+	}
+
+	@Benchmark
+	public String jdkToLowerCaseMixed() {
+		return mixedCase.toLowerCase();
+	}
+
+}
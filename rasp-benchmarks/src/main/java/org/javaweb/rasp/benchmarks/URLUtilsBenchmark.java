@@ -0,0 +1,64 @@
+package org.javaweb.rasp.benchmarks;
+
+import org.javaweb.rasp.commons.utils.URLUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * URLUtils.urlNormalize性能测试，按URL目录层级分别测试标准URL和需要标准化的URL
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class URLUtilsBenchmark {
+
+	@Param({"2", "8", "32"})
+	public int segments;
+
+	private String normalizedUrl;
+
+	private String denormalizedUrl;
+
+	@Setup
+	public void setup() {
+		StringBuilder normalized   = new StringBuilder();
+		StringBuilder denormalized = new StringBuilder();
+
+		for (int i = 0; i < segments; i++) {
+			normalized.append("/dir").append(i);
+
+			// 模拟常见的绕过方式：重复的"/"、"./"、"../"和"\"
+			switch (i % 4) {
+				case 0:
+					denormalized.append("//dir").append(i);
+					break;
+				case 1:
+					denormalized.append("/./dir").append(i);
+					break;
+				case 2:
+					denormalized.append("/tmp/../dir").append(i);
+					break;
+				default:
+					denormalized.append("\\dir").append(i);
+			}
+		}
+
+		this.normalizedUrl = normalized.append("/index.jsp").toString();
+		this.denormalizedUrl = denormalized.append("/index.jsp").toString();
+	}
+
+	@Benchmark
+	public String normalized() {
+		return URLUtils.urlNormalize(normalizedUrl);
+	}
+
+	@Benchmark
+	public String denormalized() {
+		return URLUtils.urlNormalize(denormalizedUrl);
+	}
+
+}
@@ -5,13 +5,12 @@ import org.javaweb.rasp.commons.attack.RASPAttackInfo;
 import org.javaweb.rasp.commons.attack.RASPParameterPosition;
 import org.javaweb.rasp.commons.cache.RASPCachedParameter;
 import org.javaweb.rasp.commons.cache.RASPCachedRequest;
+import org.javaweb.rasp.commons.cache.RASPParameterMatcher;
 import org.javaweb.rasp.commons.context.RASPHttpRequestContext;
-import org.javaweb.rasp.commons.utils.StringUtils;
 
 import java.rasp.proxy.loader.HookResult;
 import java.rasp.proxy.loader.RASPHookException;
 import java.util.List;
-import java.util.Set;
 
 import static java.rasp.proxy.loader.HookResultType.THROW;
 import static org.javaweb.rasp.agent.hooks.cmd.LocalCommandHook.CMD_TYPE;
@@ -46,35 +45,23 @@ public class LocalCommandHookHandler {
 				return DEFAULT_HOOK_RESULT;
 			}
 
-			Set<RASPCachedParameter> cachedParameters = cachedRequest.getCachedParameter();
+			// 请求参数值匹配器，所有参数值会被编译成Hash索引，检测成本只和命令长度有关，和请求参数个数无关
+			RASPParameterMatcher matcher = cachedRequest.getCachedParameter().getParameterMatcher();
 
 			// 只过滤请求参数值，忽略请求参数名称，因为参数名出现命令执行的概率太低
-			for (RASPCachedParameter parameterValue : cachedParameters) {
-				// 请求参数名称
-				String key = parameterValue.getKey();
+			RASPCachedParameter parameter = matcher.match(commands);
 
-				// 请求参数值
-				String[] values = parameterValue.getValue();
+			if (parameter != null) {
+				// 请求参数名称
+				String key = parameter.getKey();
 
 				// 请求参数出现的位置
-				RASPParameterPosition position = parameterValue.getRaspAttackPosition();
-
-				// 遍历所有的参数值
-				for (String value : values) {
-					if (StringUtils.isEmpty(value)) {
-						continue;
-					}
-
-					// 遍历被执行的系统命令
-					for (String cmd : commands) {
-						if (value.equals(cmd)) {
-							// 添加攻击日志记录
-							context.addAttackInfo(new RASPAttackInfo(CMD_TYPE, key, commands, position, event, true));
-
-							return BLOCK_RESULT;
-						}
-					}
-				}
+				RASPParameterPosition position = parameter.getRaspAttackPosition();
+
+				// 添加攻击日志记录
+				context.addAttackInfo(new RASPAttackInfo(CMD_TYPE, key, commands, position, event, true));
+
+				return BLOCK_RESULT;
 			}
 
 		}